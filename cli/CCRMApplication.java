@@ -7,7 +7,10 @@ import edu.ccrm.io.FileIOService;
 import edu.ccrm.service.*;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 
 public class CCRMApplication {
@@ -15,6 +18,10 @@ public class CCRMApplication {
     private final StudentService studentService;
     private final CourseService courseService;
     private final FileIOService fileIOService;
+    private final AnalyticsEngine analyticsEngine;
+    private final ChangeFeed changeFeed;
+    // Read when the Recent Changes report is opened; lossy, so it never slows down writes
+    private final ChangeFeed.Subscription recentChanges;
     private final AppConfig config;
     private boolean running = true;
     
@@ -34,6 +41,11 @@ public class CCRMApplication {
         this.courseService = new CourseService();
         this.fileIOService = new FileIOService(studentService, courseService);
         this.config = AppConfig.getInstance();
+        this.analyticsEngine = new AnalyticsEngine(studentService, courseService, config.getAnalyticsParallelism());
+        this.changeFeed = new ChangeFeed(config.getChangeFeedCapacity());
+        studentService.addMutationLog(changeFeed);
+        courseService.addMutationLog(changeFeed);
+        this.recentChanges = changeFeed.subscribe(ChangeFeed.OverflowPolicy.OVERWRITE);
     }
     
     public void start() {
@@ -81,12 +93,23 @@ public class CCRMApplication {
             }
         }
         
+        try {
+            fileIOService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing journal: " + e.getMessage());
+        }
+        analyticsEngine.close();
+        changeFeed.close();
         System.out.println("Thank you for using " + config.getAppName() + "!");
         scanner.close();
     }
     
     private void loadSampleData() {
         try {
+            // Sample data is only loaded on a first run; it is journaled like any other change
+            if (fileIOService.recover()) {
+                return;
+            }
             fileIOService.createSampleData();
             fileIOService.importStudentsFromCSV("sample_students.csv");
             fileIOService.importCoursesFromCSV("sample_courses.csv");
@@ -118,6 +141,7 @@ public class CCRMApplication {
         System.out.println("4. Deactivate Student");
         System.out.println("5. Print Student Profile");
         System.out.println("6. Print Student Transcript");
+        System.out.println("7. Search Students by Name");
         System.out.print("Enter choice: ");
         
         int choice = scanner.nextInt();
@@ -130,6 +154,7 @@ public class CCRMApplication {
             case 4 -> deactivateStudent();
             case 5 -> printStudentProfile();
             case 6 -> printStudentTranscript();
+            case 7 -> searchStudentsByName();
             default -> System.out.println("Invalid choice.");
         }
     }
@@ -157,21 +182,14 @@ public class CCRMApplication {
     }
     
     private void listAllStudents() {
-        List<Student> students = studentService.findAll();
-        
-        if (students.isEmpty()) {
+        if (studentService.count() == 0) {
             System.out.println("No students found.");
             return;
         }
         
         System.out.println("\n=== ALL STUDENTS ===");
-        
-        // Enhanced for loop
-        for (Student student : students) {
-            System.out.println(student);
-        }
-        
-        System.out.println("Total students: " + students.size());
+        printPages(studentService, (number, student) -> System.out.println(student));
+        System.out.println("Total students: " + studentService.count());
     }
     
     private void updateStudent() {
@@ -222,12 +240,65 @@ public class CCRMApplication {
         }
     }
     
+    private void searchStudentsByName() {
+        System.out.print("Enter name or part of it: ");
+        String query = scanner.nextLine();
+        
+        List<Student> matches = studentService.searchByName(query);
+        if (matches.isEmpty()) {
+            System.out.println("No students found.");
+        } else {
+            matches.forEach(System.out::println);
+        }
+    }
+    
     private void printStudentTranscript() {
         System.out.print("Enter Student ID: ");
         String id = scanner.nextLine();
         studentService.getTranscriptService().printTranscript(id);
     }
     
+    private void exportTranscripts() throws IOException {
+        System.out.print("Student status (ACTIVE/INACTIVE/GRADUATED/SUSPENDED, blank for all): ");
+        String status = scanner.nextLine().trim();
+        List<Student> selected;
+        try {
+            selected = status.isEmpty()
+                ? studentService.findAll()
+                : studentService.findByStatus(StudentStatus.valueOf(status.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: Unknown student status " + status);
+            return;
+        }
+        System.out.print("1. One file per student  2. Single combined file: ");
+        boolean filePerStudent = !scanner.nextLine().trim().equals("2");
+        
+        // Reports progress from a side thread while the export runs on this one
+        AtomicLong progress = new AtomicLong();
+        Thread reporter = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(500);
+                    System.out.printf("\rRendered %d of %d transcripts", progress.get(), selected.size());
+                }
+            } catch (InterruptedException e) {
+                // Export finished
+            }
+        });
+        reporter.setDaemon(true);
+        
+        long start = System.nanoTime();
+        reporter.start();
+        Path output;
+        try {
+            output = fileIOService.exportTranscripts(selected, filePerStudent, progress);
+        } finally {
+            reporter.interrupt();
+        }
+        System.out.printf("\rRendered %d transcripts in %d ms to %s%n",
+            progress.get(), (System.nanoTime() - start) / 1_000_000, output);
+    }
+    
     private void handleCourseManagement() {
         System.out.println("\n=== COURSE MANAGEMENT ===");
         System.out.println("1. Add Course");
@@ -281,18 +352,33 @@ public class CCRMApplication {
     }
     
     private void listAllCourses() {
-        List<Course> courses = courseService.findAll();
-        
-        if (courses.isEmpty()) {
+        if (courseService.count() == 0) {
             System.out.println("No courses found.");
             return;
         }
         
         System.out.println("\n=== ALL COURSES ===");
-        
-        // Traditional for loop
-        for (int i = 0; i < courses.size(); i++) {
-            System.out.printf("%d. %s%n", i + 1, courses.get(i));
+        printPages(courseService, (number, course) -> System.out.printf("%d. %s%n", number, course));
+    }
+    
+    // Prints a listing one page at a time in key order; Enter shows the next page, anything
+    // else stops. Only one page is held in memory however large the registry is.
+    private <T> void printPages(Searchable<T> source, BiConsumer<Integer, T> printer) {
+        PageRequest request = PageRequest.first(config.getListPageSize());
+        int shown = 0;
+        while (true) {
+            Page<T> page = source.findPage(request);
+            for (T item : page.getItems()) {
+                printer.accept(++shown, item);
+            }
+            if (!page.hasNext()) {
+                return;
+            }
+            System.out.print("-- Press Enter for more, or q to stop: ");
+            if (!scanner.nextLine().isEmpty()) {
+                return;
+            }
+            request = request.after(page.getNextCursor());
         }
     }
     
@@ -318,6 +404,8 @@ public class CCRMApplication {
         System.out.println("1. Instructor");
         System.out.println("2. Department");
         System.out.println("3. Semester");
+        System.out.println("4. Combined filters");
+        System.out.println("5. Title");
         System.out.print("Enter choice: ");
         
         int choice = scanner.nextInt();
@@ -342,6 +430,11 @@ public class CCRMApplication {
                 Semester semester = Semester.valueOf(semesterStr.toUpperCase());
                 results = courseService.findBySemester(semester);
             }
+            case 4 -> results = searchCoursesByFilters();
+            case 5 -> {
+                System.out.print("Enter title or part of it: ");
+                results = courseService.searchByTitle(scanner.nextLine());
+            }
         }
         
         if (results.isEmpty()) {
@@ -352,6 +445,42 @@ public class CCRMApplication {
         }
     }
     
+    // Builds an AND of the filters the user fills in (blank skips one) and shows the query plan
+    private List<Course> searchCoursesByFilters() {
+        List<Query<Course>> filters = new ArrayList<>();
+        
+        System.out.print("Semester (SPRING/SUMMER/FALL, blank for any): ");
+        String semester = scanner.nextLine().trim();
+        if (!semester.isEmpty()) {
+            filters.add(Query.eq(CourseService.Fields.SEMESTER, Semester.valueOf(semester.toUpperCase())));
+        }
+        
+        System.out.print("Department (blank for any): ");
+        String department = scanner.nextLine().trim();
+        if (!department.isEmpty()) {
+            filters.add(Query.eq(CourseService.Fields.DEPARTMENT, department));
+        }
+        
+        System.out.print("Minimum credits (blank for any): ");
+        String minCredits = scanner.nextLine().trim();
+        System.out.print("Maximum credits (blank for any): ");
+        String maxCredits = scanner.nextLine().trim();
+        if (!minCredits.isEmpty() || !maxCredits.isEmpty()) {
+            filters.add(Query.between(CourseService.Fields.CREDITS,
+                minCredits.isEmpty() ? null : Integer.valueOf(minCredits),
+                maxCredits.isEmpty() ? null : Integer.valueOf(maxCredits)));
+        }
+        
+        if (filters.isEmpty()) {
+            return courseService.findAll();
+        }
+        
+        Query<Course> query = Query.and(filters);
+        System.out.println("Query plan:");
+        System.out.print(courseService.explain(query));
+        return courseService.query(query);
+    }
+    
     private void handleEnrollmentManagement() {
         System.out.println("\n=== ENROLLMENT MANAGEMENT ===");
         System.out.println("1. Enroll Student");
@@ -477,6 +606,10 @@ public class CCRMApplication {
         System.out.println("3. Export Students to CSV");
         System.out.println("4. Export Courses to CSV");
         System.out.println("5. Create Backup");
+        System.out.println("6. Save Snapshot");
+        System.out.println("7. Create Compressed Archive");
+        System.out.println("8. Export Transcripts (batch)");
+        System.out.println("9. Partitioned Export by Department and Semester");
         System.out.print("Enter choice: ");
         
         int choice = scanner.nextInt();
@@ -487,12 +620,12 @@ public class CCRMApplication {
                 case 1 -> {
                     System.out.print("Enter CSV filename: ");
                     String filename = scanner.nextLine();
-                    fileIOService.importStudentsFromCSV(filename);
+                    printImportResult("students", fileIOService.importStudentsFromCSV(filename));
                 }
                 case 2 -> {
                     System.out.print("Enter CSV filename: ");
                     String filename = scanner.nextLine();
-                    fileIOService.importCoursesFromCSV(filename);
+                    printImportResult("courses", fileIOService.importCoursesFromCSV(filename));
                 }
                 case 3 -> {
                     System.out.print("Enter output filename: ");
@@ -505,6 +638,10 @@ public class CCRMApplication {
                     fileIOService.exportCoursesToCSV(filename);
                 }
                 case 5 -> fileIOService.createBackup();
+                case 6 -> fileIOService.saveSnapshot();
+                case 7 -> fileIOService.createArchive();
+                case 8 -> exportTranscripts();
+                case 9 -> fileIOService.exportPartitioned();
                 default -> System.out.println("Invalid choice.");
             }
         } catch (IOException e) {
@@ -512,10 +649,32 @@ public class CCRMApplication {
         }
     }
     
+    private void printImportResult(String entity, ImportResult result) {
+        System.out.printf("Imported %d %s, rejected %d.%n",
+            result.getAcceptedCount(), entity, result.getRejectedCount());
+        
+        // Only the first few reasons; the full list stays available on the result
+        final int maxShown = 10;
+        List<ImportResult.Rejection> rejections = result.getRejections();
+        for (int i = 0; i < Math.min(maxShown, rejections.size()); i++) {
+            System.out.println("  " + rejections.get(i));
+        }
+        if (rejections.size() > maxShown) {
+            System.out.println("  ... and " + (rejections.size() - maxShown) + " more");
+        }
+    }
+    
     private void handleReports() {
         System.out.println("\n=== REPORTS ===");
         System.out.println("1. GPA Statistics");
         System.out.println("2. Course Count by Department");
+        System.out.println("3. Dean's List and Probation List");
+        System.out.println("4. GPA Percentiles and Histogram");
+        System.out.println("5. GPA Rankings by Department");
+        System.out.println("6. GPA Rankings by Course");
+        System.out.println("7. Report Cache Statistics");
+        System.out.println("8. Full Cohort Analytics");
+        System.out.println("9. Recent Changes");
         System.out.print("Enter choice: ");
         
         int choice = scanner.nextInt();
@@ -524,23 +683,121 @@ public class CCRMApplication {
         switch (choice) {
             case 1 -> showGPAStatistics();
             case 2 -> showCourseStatistics();
+            case 3 -> showGPARankings();
+            case 4 -> showGPAPercentiles();
+            case 5 -> showGroupedGPARankings("DEPARTMENT", studentService.gpaReportByDepartment(readTopK(), courseService));
+            case 6 -> showGroupedGPARankings("COURSE", studentService.gpaReportByCourse(readTopK()));
+            case 7 -> {
+                System.out.println("Student reports: " + studentService.getReportCache());
+                System.out.println("Course reports:  " + courseService.getReportCache());
+            }
+            case 8 -> showCohortAnalytics();
+            case 9 -> showRecentChanges();
             default -> System.out.println("Invalid choice.");
         }
     }
     
+    private int readTopK() {
+        System.out.print("How many students per list (blank for " + config.getReportTopK() + "): ");
+        String k = scanner.nextLine().trim();
+        return k.isEmpty() ? config.getReportTopK() : Integer.parseInt(k);
+    }
+    
+    private void showGPARankings() {
+        GPAReport report = studentService.gpaReport(readTopK());
+        System.out.printf("%n=== DEAN'S LIST (%d graded active students) ===%n", report.getCount());
+        report.getTop().forEach(ranked -> System.out.println("  " + ranked));
+        System.out.println("\n=== PROBATION LIST ===");
+        report.getBottom().forEach(ranked -> System.out.println("  " + ranked));
+    }
+    
+    private void showGPAPercentiles() {
+        GPAReport report = studentService.gpaReport(0);
+        System.out.println("\n=== GPA PERCENTILES ===");
+        System.out.printf("Graded active students: %d, average GPA: %.2f%n", report.getCount(), report.getAverageGPA());
+        if (report.getCount() == 0) {
+            return;
+        }
+        for (int percent : new int[] {10, 25, 50, 75, 90, 99}) {
+            System.out.printf("  P%-3d %.2f%n", percent, report.percentile(percent));
+        }
+        
+        final int bins = 8;
+        long[] histogram = report.histogram(bins);
+        double binWidth = GPAReport.MAX_GPA / bins;
+        System.out.println("GPA histogram:");
+        for (int bin = 0; bin < bins; bin++) {
+            System.out.printf("  %.1f-%.1f: %d%n", bin * binWidth, (bin + 1) * binWidth, histogram[bin]);
+        }
+    }
+    
+    // Recomputes everything from the raw records on the analytics pool rather than the caches
+    private void showCohortAnalytics() {
+        long start = System.nanoTime();
+        Map<String, Long> courseCounts = new TreeMap<>(analyticsEngine.courseCountByDepartment());
+        Student.GPAStatistics stats = analyticsEngine.gpaStatistics();
+        Map<String, Long> credits = new TreeMap<>(analyticsEngine.enrolledCreditsByDepartment());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        System.out.printf("%n=== COHORT ANALYTICS (%d threads, %d ms) ===%n",
+            analyticsEngine.getParallelism(), elapsedMillis);
+        System.out.printf("Active students: %d, average GPA: %.2f, GPA >= 3.7: %d%n",
+            stats.getTotalStudents(), stats.getAverageGPA(), stats.getHonorsCount());
+        System.out.printf("%-20s %8s %16s%n", "Department", "Courses", "Enrolled credits");
+        Set<String> departments = new TreeSet<>(courseCounts.keySet());
+        departments.addAll(credits.keySet());
+        for (String department : departments) {
+            System.out.printf("%-20s %8d %16d%n", department,
+                courseCounts.getOrDefault(department, 0L), credits.getOrDefault(department, 0L));
+        }
+    }
+    
+    // Changes made since the report was last opened; only the latest few are listed
+    private void showRecentChanges() {
+        final int shown = 20;
+        Deque<ChangeEvent> latest = new ArrayDeque<>(shown);
+        long lostBefore = recentChanges.getLostCount();
+        int total = recentChanges.poll(Integer.MAX_VALUE, event -> {
+            if (latest.size() == shown) {
+                latest.removeFirst();
+            }
+            latest.addLast(event);
+        });
+        long lost = recentChanges.getLostCount() - lostBefore;
+        
+        System.out.printf("%n=== RECENT CHANGES (%d new", total);
+        if (lost > 0) {
+            System.out.printf(", %d older ones dropped", lost);
+        }
+        System.out.println(") ===");
+        latest.forEach(event -> System.out.println("  " + event));
+    }
+    
+    private void showGroupedGPARankings(String groupName, Map<String, GPAReport> reports) {
+        System.out.println("\n=== GPA RANKINGS BY " + groupName + " ===");
+        if (reports.isEmpty()) {
+            System.out.println("No graded active students.");
+        }
+        reports.forEach((group, report) -> {
+            System.out.printf("%n%s: %d students, average %.2f, median %.2f%n",
+                group, report.getCount(), report.getAverageGPA(), report.percentile(50));
+            System.out.println("  Top:    " + report.getTop());
+            System.out.println("  Bottom: " + report.getBottom());
+        });
+    }
+    
     private void showGPAStatistics() {
         Student.GPAStatistics stats = studentService.calculateGPAStatistics();
         System.out.println("\n=== GPA STATISTICS ===");
         System.out.printf("Total Active Students: %d%n", stats.getTotalStudents());
         System.out.printf("Average GPA: %.2f%n", stats.getAverageGPA());
+        System.out.printf("Students with GPA >= 3.7: %d%n", stats.getHonorsCount());
         
-        // Stream API demonstration for GPA distribution
-        List<Student> students = studentService.findAll();
-        long excellentCount = students.stream()
-            .filter(s -> s.calculateGPA() >= 3.7)
-            .count();
-        
-        System.out.printf("Students with GPA >= 3.7: %d%n", excellentCount);
+        long[] distribution = stats.getDistribution();
+        System.out.println("GPA distribution:");
+        for (int band = distribution.length - 1; band >= 0; band--) {
+            System.out.printf("  >= %.1f: %d%n", Student.GPAStatistics.bandLowerBound(band), distribution[band]);
+        }
     }
     
     private void showCourseStatistics() {
@@ -550,6 +807,11 @@ public class CCRMApplication {
         deptCounts.forEach((dept, count) -> {
             System.out.printf("%-20s: %d courses%n", dept, count);
         });
+        
+        System.out.println("\n=== COURSE STATISTICS BY CODE PREFIX ===");
+        courseService.getCourseCountByCodePrefix().forEach((prefix, count) -> {
+            System.out.printf("%-20s: %d courses%n", prefix, count);
+        });
     }
     
     public static void main(String[] args) {
@@ -9,6 +9,17 @@ public class AppConfig {
     private final String appName = "Campus Course Records Manager";
     private final String version = "1.0.0";
     private final int maxCreditsPerSemester = 18;
+    private final int enrollmentLockStripes = 64;
+    private final long journalFsyncIntervalMillis = 50;
+    private final int backupMaxLayers = 8;
+    private final int listPageSize = 20;
+    private final int searchResultLimit = 10;
+    private final int reportTopK = 10;
+    private final int reportCacheSize = 64;
+    private final int analyticsParallelism = Runtime.getRuntime().availableProcessors();
+    private final int parallelExportMinRows = 50_000;
+    private final int exportMaxOpenFiles = 32;
+    private final int changeFeedCapacity = 1 << 16;
     private final Path dataDirectory = Paths.get("data");
     private final Path backupDirectory = Paths.get("backups");
     
@@ -28,6 +39,17 @@ public class AppConfig {
     public String getAppName() { return appName; }
     public String getVersion() { return version; }
     public int getMaxCreditsPerSemester() { return maxCreditsPerSemester; }
+    public int getEnrollmentLockStripes() { return enrollmentLockStripes; }
+    public long getJournalFsyncIntervalMillis() { return journalFsyncIntervalMillis; }
+    public int getBackupMaxLayers() { return backupMaxLayers; }
+    public int getListPageSize() { return listPageSize; }
+    public int getSearchResultLimit() { return searchResultLimit; }
+    public int getReportTopK() { return reportTopK; }
+    public int getReportCacheSize() { return reportCacheSize; }
+    public int getAnalyticsParallelism() { return analyticsParallelism; }
+    public int getParallelExportMinRows() { return parallelExportMinRows; }
+    public int getExportMaxOpenFiles() { return exportMaxOpenFiles; }
+    public int getChangeFeedCapacity() { return changeFeedCapacity; }
     public Path getDataDirectory() { return dataDirectory; }
     public Path getBackupDirectory() { return backupDirectory; }
     
@@ -2,17 +2,32 @@ package edu.ccrm.domain;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class Course {
-    private final String code;
+    private final CourseCode code;
     private String title;
     private final int credits;
     private String instructor;
     private Semester semester;
     private String department;
     private CourseStatus status;
-    private final Set<String> enrolledStudents;
+    // Enrolled students as sorted ids from IdDictionary.studentIds(); guarded by this.
+    // Copied before the next change once a read view shares the array.
+    private int[] studentIds = new int[8];
+    private int studentCount;
+    private boolean shared;
     private final LocalDateTime createdDate;
+    private LocalDateTime lastUpdated;
+    private ChangeListener changeListener;
+    
+    // Callback so the owning service can keep its secondary indexes in sync
+    public interface ChangeListener {
+        default void onTitleChanged(Course course, String oldTitle) {}
+        default void onInstructorChanged(Course course, String oldInstructor) {}
+        default void onSemesterChanged(Course course, Semester oldSemester) {}
+        default void onStatusChanged(Course course, CourseStatus oldStatus) {}
+    }
     
     // Builder pattern implementation
     public static class Builder {
@@ -22,6 +37,7 @@ public class Course {
         private String instructor = "";
         private Semester semester = Semester.FALL;
         private String department = "";
+        private LocalDateTime createdDate;
         
         public Builder(String code, String title, int credits) {
             this.code = code;
@@ -44,51 +60,156 @@ public class Course {
             return this;
         }
         
+        // Only for restoring a saved course; new courses are stamped with the current time
+        public Builder createdDate(LocalDateTime createdDate) {
+            this.createdDate = createdDate;
+            return this;
+        }
+        
         public Course build() {
             return new Course(this);
         }
     }
     
     private Course(Builder builder) {
-        this.code = builder.code;
+        this.code = CourseCode.of(builder.code);
         this.title = builder.title;
         this.credits = builder.credits;
         this.instructor = builder.instructor;
         this.semester = builder.semester;
         this.department = builder.department;
         this.status = CourseStatus.ACTIVE;
-        this.enrolledStudents = new HashSet<>();
-        this.createdDate = LocalDateTime.now();
+        this.createdDate = builder.createdDate != null ? builder.createdDate : LocalDateTime.now();
+        this.lastUpdated = createdDate;
     }
     
-    public boolean enrollStudent(String studentId) {
-        return enrolledStudents.add(studentId);
+    public synchronized boolean enrollStudent(String studentId) {
+        int id = IdDictionary.studentIds().intern(studentId);
+        int slot = Arrays.binarySearch(studentIds, 0, studentCount, id);
+        if (slot >= 0) {
+            return false;
+        }
+        
+        slot = -slot - 1;
+        if (studentCount == studentIds.length) {
+            studentIds = Arrays.copyOf(studentIds, studentCount * 2);
+            shared = false;
+        } else if (shared) {
+            studentIds = studentIds.clone();
+            shared = false;
+        }
+        System.arraycopy(studentIds, slot, studentIds, slot + 1, studentCount - slot);
+        studentIds[slot] = id;
+        studentCount++;
+        lastUpdated = LocalDateTime.now();
+        return true;
     }
     
-    public boolean unenrollStudent(String studentId) {
-        return enrolledStudents.remove(studentId);
+    public synchronized boolean unenrollStudent(String studentId) {
+        int id = IdDictionary.studentIds().lookup(studentId);
+        int slot = id < 0 ? -1 : Arrays.binarySearch(studentIds, 0, studentCount, id);
+        if (slot < 0) {
+            return false;
+        }
+        
+        if (shared) {
+            studentIds = studentIds.clone();
+            shared = false;
+        }
+        System.arraycopy(studentIds, slot + 1, studentIds, slot, studentCount - slot - 1);
+        studentCount--;
+        lastUpdated = LocalDateTime.now();
+        return true;
     }
     
     // Getters and setters
-    public String getCode() { return code; }
+    public String getCode() { return code.getFullCode(); }
+    public CourseCode getCourseCode() { return code; }
     public String getTitle() { return title; }
     public int getCredits() { return credits; }
     public String getInstructor() { return instructor; }
     public Semester getSemester() { return semester; }
     public String getDepartment() { return department; }
     public CourseStatus getStatus() { return status; }
-    public Set<String> getEnrolledStudents() { return new HashSet<>(enrolledStudents); }
     public LocalDateTime getCreatedDate() { return createdDate; }
+    public LocalDateTime getLastUpdated() { return lastUpdated; }
     
-    public void setTitle(String title) { this.title = title; }
-    public void setInstructor(String instructor) { this.instructor = instructor; }
-    public void setSemester(Semester semester) { this.semester = semester; }
-    public void setStatus(CourseStatus status) { this.status = status; }
+    // Read-only snapshot: later enrollments do not show through it
+    public synchronized Set<String> getEnrolledStudents() {
+        shared = true;
+        return new IdSetView(studentIds, studentCount, IdDictionary.studentIds());
+    }
+    
+    public synchronized boolean isEnrolled(String studentId) {
+        int id = IdDictionary.studentIds().lookup(studentId);
+        return id >= 0 && Arrays.binarySearch(studentIds, 0, studentCount, id) >= 0;
+    }
+    
+    // Visits a snapshot of the enrolled student ids without holding the course's lock
+    public void forEachEnrolledStudent(Consumer<String> action) {
+        int[] ids;
+        int count;
+        synchronized (this) {
+            shared = true;
+            ids = studentIds;
+            count = studentCount;
+        }
+        for (int i = 0; i < count; i++) {
+            action.accept(IdDictionary.studentIds().valueOf(ids[i]));
+        }
+    }
+    
+    // Only for loaders that bring back a previously saved record with its original timestamp
+    public void setLastUpdated(LocalDateTime lastUpdated) { this.lastUpdated = lastUpdated; }
+    
+    public void setTitle(String title) {
+        String oldTitle = this.title;
+        this.title = title;
+        this.lastUpdated = LocalDateTime.now();
+        if (changeListener != null) {
+            changeListener.onTitleChanged(this, oldTitle);
+        }
+    }
+    
+    public void setStatus(CourseStatus status) {
+        CourseStatus oldStatus = this.status;
+        this.status = status;
+        this.lastUpdated = LocalDateTime.now();
+        if (changeListener != null) {
+            changeListener.onStatusChanged(this, oldStatus);
+        }
+    }
+    
+    public void setInstructor(String instructor) {
+        String oldInstructor = this.instructor;
+        this.instructor = instructor;
+        this.lastUpdated = LocalDateTime.now();
+        if (changeListener != null) {
+            changeListener.onInstructorChanged(this, oldInstructor);
+        }
+    }
+    
+    public void setSemester(Semester semester) {
+        Semester oldSemester = this.semester;
+        this.semester = semester;
+        this.lastUpdated = LocalDateTime.now();
+        if (changeListener != null) {
+            changeListener.onSemesterChanged(this, oldSemester);
+        }
+    }
+    
+    public synchronized int getEnrolledCount() {
+        return studentCount;
+    }
+    
+    public void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
     
     @Override
     public String toString() {
         return String.format("Course [Code: %s, Title: %s, Credits: %d, Instructor: %s, " +
             "Semester: %s, Enrolled: %d]",
-            code, title, credits, instructor, semester, enrolledStudents.size());
+            code, title, credits, instructor, semester, getEnrolledCount());
     }
 }
@@ -1,13 +1,25 @@
 package edu.ccrm.domain;
 
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Canonical course key. Instances are interned, so there is exactly one per code: equality is
+// normally an identity check, the hash is computed once, and the department prefix and
+// number are parsed once instead of on every use.
 public final class CourseCode {
+    private static final ConcurrentHashMap<String, CourseCode> INTERNED = new ConcurrentHashMap<>();
+    private static volatile CourseCode[] byOrdinal = new CourseCode[256];
+    
+    private final String fullCode;
     private final String code;
     private final String department;
+    private final int hash;
+    private final int ordinal;
     
-    public CourseCode(String fullCode) {
+    private CourseCode(String fullCode) {
         // Parse code like "CS101" -> department="CS", code="101"
-        if (fullCode == null || fullCode.length() < 3) {
-            throw new IllegalArgumentException("Invalid course code");
+        if (fullCode.length() < 3) {
+            throw new IllegalArgumentException("Invalid course code: " + fullCode);
         }
         
         int i = 0;
@@ -15,17 +27,54 @@ public final class CourseCode {
             i++;
         }
         
+        this.fullCode = fullCode;
         this.department = fullCode.substring(0, i);
         this.code = fullCode.substring(i);
+        this.hash = fullCode.hashCode();
+        this.ordinal = IdDictionary.courseCodes().intern(fullCode);
+        register(this);
+    }
+    
+    // Runs inside computeIfAbsent, so the instance is in the table before of() returns it
+    private static synchronized void register(CourseCode courseCode) {
+        CourseCode[] table = byOrdinal;
+        if (courseCode.ordinal >= table.length) {
+            table = Arrays.copyOf(table, Math.max(table.length * 2, courseCode.ordinal + 1));
+        }
+        table[courseCode.ordinal] = courseCode;
+        byOrdinal = table;
+    }
+    
+    // The one instance for this code, created on first use
+    public static CourseCode of(String fullCode) {
+        if (fullCode == null) {
+            throw new IllegalArgumentException("Invalid course code: null");
+        }
+        CourseCode courseCode = INTERNED.get(fullCode);
+        return courseCode != null ? courseCode : INTERNED.computeIfAbsent(fullCode, CourseCode::new);
+    }
+    
+    // The instance for this code, or null if it was never created; use on lookup paths so
+    // queries for unknown codes do not grow the intern table
+    public static CourseCode lookup(String fullCode) {
+        return fullCode == null ? null : INTERNED.get(fullCode);
+    }
+    
+    // The instance with this ordinal; ordinals come from instances, so it always exists
+    public static CourseCode byOrdinal(int ordinal) {
+        return byOrdinal[ordinal];
     }
     
     public String getCode() { return code; }
     public String getDepartment() { return department; }
-    public String getFullCode() { return department + code; }
+    public String getFullCode() { return fullCode; }
+    
+    // Dense id of this code in IdDictionary.courseCodes()
+    public int ordinal() { return ordinal; }
     
     @Override
     public String toString() {
-        return getFullCode();
+        return fullCode;
     }
     
     @Override
@@ -33,11 +82,11 @@ public final class CourseCode {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         CourseCode that = (CourseCode) obj;
-        return department.equals(that.department) && code.equals(that.code);
+        return fullCode.equals(that.fullCode);
     }
     
     @Override
     public int hashCode() {
-        return department.hashCode() * 31 + code.hashCode();
+        return hash;
     }
 }
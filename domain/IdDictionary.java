@@ -0,0 +1,57 @@
+package edu.ccrm.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps string identifiers to dense ints so per-entity collections can hold primitive ids
+// instead of String references. Ids are assigned in first-seen order and never reused, so
+// an id stays valid (and decodes to the same string) for the life of the process.
+public final class IdDictionary {
+    private static final IdDictionary STUDENT_IDS = new IdDictionary();
+    private static final IdDictionary COURSE_CODES = new IdDictionary();
+    
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[1024];
+    private int size;
+    
+    private IdDictionary() {}
+    
+    public static IdDictionary studentIds() {
+        return STUDENT_IDS;
+    }
+    
+    public static IdDictionary courseCodes() {
+        return COURSE_CODES;
+    }
+    
+    // Returns the id for the value, assigning the next one if it has not been seen before
+    public int intern(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : ids.computeIfAbsent(value, this::assign);
+    }
+    
+    // Returns the id for the value, or -1 without assigning one; use on read and remove paths
+    public int lookup(String value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+    
+    public String valueOf(int id) {
+        return values[id];
+    }
+    
+    public int size() {
+        return ids.size();
+    }
+    
+    // Runs inside computeIfAbsent, so the string is stored before its id can be observed
+    private synchronized int assign(String value) {
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = value;
+        values = current;
+        return size++;
+    }
+}
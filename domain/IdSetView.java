@@ -0,0 +1,55 @@
+package edu.ccrm.domain;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Read-only set over the first count entries of a sorted id array, decoding ids through a
+// dictionary. The owner never writes to an array after handing out a view of it, so the
+// view is an immutable snapshot that costs no copying.
+final class IdSetView extends AbstractSet<String> {
+    private final int[] ids;
+    private final int count;
+    private final IdDictionary dictionary;
+    
+    IdSetView(int[] ids, int count, IdDictionary dictionary) {
+        this.ids = ids;
+        this.count = count;
+        this.dictionary = dictionary;
+    }
+    
+    @Override
+    public int size() {
+        return count;
+    }
+    
+    @Override
+    public boolean contains(Object value) {
+        if (!(value instanceof String)) {
+            return false;
+        }
+        int id = dictionary.lookup((String) value);
+        return id >= 0 && Arrays.binarySearch(ids, 0, count, id) >= 0;
+    }
+    
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next;
+            
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+            
+            @Override
+            public String next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                return dictionary.valueOf(ids[next++]);
+            }
+        };
+    }
+}
@@ -26,6 +26,8 @@ public abstract class Person {
     
     public void setFullName(String fullName) { this.fullName = fullName; }
     public void setEmail(String email) { this.email = email; }
+    // Only for restoring a saved record; the constructor stamps new ones
+    public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
     
     @Override
     public String toString() {
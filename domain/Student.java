@@ -2,34 +2,85 @@ package edu.ccrm.domain;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
 
 public class Student extends Person {
     private String regNo;
     private StudentStatus status;
-    private Set<String> enrolledCourses;
-    private Map<String, Grade> courseGrades;
     private LocalDateTime lastUpdated;
+    // Set under the service's registry lock, read by mutators under entity locks
+    private volatile ChangeListener changeListener;
+    
+    // Running totals so calculateGPA() does not re-stream the grade map.
+    // Kept in tenths of a point so add/remove cycles never accumulate rounding error.
+    private int gradePointTenths;
+    private int gradedCourseCount;
+    
+    // Enrollments as course ids from IdDictionary.courseCodes(), kept sorted, with the grade
+    // for each slot as a Grade ordinal (NO_GRADE until one is recorded). Guarded by this.
+    // Once a read view has been handed out the arrays are shared and the next change copies
+    // them first, so views stay immutable without copying on every read.
+    private static final byte NO_GRADE = -1;
+    private int[] courseIds = new int[4];
+    private byte[] grades = new byte[4];
+    private int courseCount;
+    private boolean shared;
+    
+    // Callback so the owning service can keep its secondary indexes in sync
+    public interface ChangeListener {
+        default void onNameChanged(Student student, String oldName) {}
+        default void onEmailChanged(Student student, String oldEmail) {}
+        default void onStatusChanged(Student student, StudentStatus oldStatus) {}
+        default void onGPAChanged(Student student, double oldGPA) {}
+        default void onEnrollmentChanged(Student student) {}
+    }
     
     // Static nested class for GPA statistics
     public static class GPAStatistics {
+        // Lower bounds of the GPA bands; the last band is the GPA >= 3.7 honors band
+        private static final double[] BAND_LOWER_BOUNDS = {0.0, 1.0, 2.0, 3.0, 3.7};
+        
         private final double averageGPA;
         private final int totalStudents;
+        private final long[] distribution;
         
         public GPAStatistics(double averageGPA, int totalStudents) {
+            this(averageGPA, totalStudents, new long[BAND_LOWER_BOUNDS.length]);
+        }
+        
+        public GPAStatistics(double averageGPA, int totalStudents, long[] distribution) {
             this.averageGPA = averageGPA;
             this.totalStudents = totalStudents;
+            this.distribution = distribution.clone();
+        }
+        
+        public static int bandCount() {
+            return BAND_LOWER_BOUNDS.length;
+        }
+        
+        public static int bandOf(double gpa) {
+            int band = BAND_LOWER_BOUNDS.length - 1;
+            while (band > 0 && gpa < BAND_LOWER_BOUNDS[band]) {
+                band--;
+            }
+            return band;
+        }
+        
+        public static double bandLowerBound(int band) {
+            return BAND_LOWER_BOUNDS[band];
         }
         
         public double getAverageGPA() { return averageGPA; }
         public int getTotalStudents() { return totalStudents; }
+        public long[] getDistribution() { return distribution.clone(); }
+        public long getHonorsCount() { return distribution[distribution.length - 1]; }
     }
     
     public Student(String id, String regNo, String fullName, String email) {
         super(id, fullName, email);
         this.regNo = regNo;
         this.status = StudentStatus.ACTIVE;
-        this.enrolledCourses = new HashSet<>();
-        this.courseGrades = new HashMap<>();
         this.lastUpdated = LocalDateTime.now();
     }
     
@@ -39,42 +90,303 @@ public class Student extends Person {
     }
     
     public void enrollInCourse(String courseCode) {
-        enrolledCourses.add(courseCode);
+        enrollInCourse(CourseCode.of(courseCode));
+    }
+    
+    public synchronized void enrollInCourse(CourseCode courseCode) {
+        int courseId = courseCode.ordinal();
+        int slot = Arrays.binarySearch(courseIds, 0, courseCount, courseId);
         lastUpdated = LocalDateTime.now();
+        if (slot >= 0) {
+            return;
+        }
+        
+        slot = -slot - 1;
+        if (courseCount == courseIds.length) {
+            courseIds = Arrays.copyOf(courseIds, courseCount * 2);
+            grades = Arrays.copyOf(grades, courseCount * 2);
+            shared = false;
+        } else {
+            unshare();
+        }
+        System.arraycopy(courseIds, slot, courseIds, slot + 1, courseCount - slot);
+        System.arraycopy(grades, slot, grades, slot + 1, courseCount - slot);
+        courseIds[slot] = courseId;
+        grades[slot] = NO_GRADE;
+        courseCount++;
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.onEnrollmentChanged(this);
+        }
     }
     
     public void unenrollFromCourse(String courseCode) {
-        enrolledCourses.remove(courseCode);
-        courseGrades.remove(courseCode);
+        CourseCode known = CourseCode.lookup(courseCode);
+        if (known != null) {
+            unenrollFromCourse(known);
+        }
+    }
+    
+    public synchronized void unenrollFromCourse(CourseCode courseCode) {
+        int slot = slotOf(courseCode);
         lastUpdated = LocalDateTime.now();
+        if (slot < 0) {
+            return;
+        }
+        
+        unshare();
+        byte removed = grades[slot];
+        System.arraycopy(courseIds, slot + 1, courseIds, slot, courseCount - slot - 1);
+        System.arraycopy(grades, slot + 1, grades, slot, courseCount - slot - 1);
+        courseCount--;
+        if (removed != NO_GRADE) {
+            updateGradeTotals(Grade.values()[removed], null);
+        }
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.onEnrollmentChanged(this);
+        }
     }
     
     public void recordGrade(String courseCode, Grade grade) {
-        if (enrolledCourses.contains(courseCode)) {
-            courseGrades.put(courseCode, grade);
+        CourseCode known = CourseCode.lookup(courseCode);
+        if (known != null) {
+            recordGrade(known, grade);
+        }
+    }
+    
+    public synchronized void recordGrade(CourseCode courseCode, Grade grade) {
+        int slot = slotOf(courseCode);
+        if (slot >= 0) {
+            unshare();
+            byte previous = grades[slot];
+            grades[slot] = (byte) grade.ordinal();
             lastUpdated = LocalDateTime.now();
+            updateGradeTotals(previous == NO_GRADE ? null : Grade.values()[previous], grade);
         }
     }
     
-    public double calculateGPA() {
-        if (courseGrades.isEmpty()) return 0.0;
-        
-        return courseGrades.values().stream()
-            .mapToDouble(Grade::getGradePoints)
-            .average()
-            .orElse(0.0);
+    // Array slot of an enrolled course, or negative if not enrolled
+    private int slotOf(CourseCode courseCode) {
+        return Arrays.binarySearch(courseIds, 0, courseCount, courseCode.ordinal());
+    }
+    
+    // Copy-on-write: called before changing arrays that a view may still be reading
+    private void unshare() {
+        if (shared) {
+            courseIds = courseIds.clone();
+            grades = grades.clone();
+            shared = false;
+        }
+    }
+    
+    private void updateGradeTotals(Grade removed, Grade added) {
+        double oldGPA = calculateGPA();
+        if (removed != null) {
+            gradePointTenths -= toTenths(removed);
+            gradedCourseCount--;
+        }
+        if (added != null) {
+            gradePointTenths += toTenths(added);
+            gradedCourseCount++;
+        }
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.onGPAChanged(this, oldGPA);
+        }
+    }
+    
+    private static int toTenths(Grade grade) {
+        return (int) Math.round(grade.getGradePoints() * 10);
+    }
+    
+    public synchronized double calculateGPA() {
+        return gradedCourseCount == 0 ? 0.0 : gradePointTenths / (10.0 * gradedCourseCount);
+    }
+    
+    // GPA in hundredths of a point, rounded half up from the exact totals rather than the double
+    public synchronized int getGPAHundredths() {
+        return gradedCourseCount == 0 ? 0 : (gradePointTenths * 20 + gradedCourseCount) / (gradedCourseCount * 2);
     }
     
     // Getters and setters
     public String getRegNo() { return regNo; }
     public StudentStatus getStatus() { return status; }
-    public Set<String> getEnrolledCourses() { return new HashSet<>(enrolledCourses); }
-    public Map<String, Grade> getCourseGrades() { return new HashMap<>(courseGrades); }
     public LocalDateTime getLastUpdated() { return lastUpdated; }
     
+    // Read-only snapshots: later changes to the student do not show through them
+    public synchronized Set<String> getEnrolledCourses() {
+        shared = true;
+        return new IdSetView(courseIds, courseCount, IdDictionary.courseCodes());
+    }
+    
+    public synchronized Map<String, Grade> getCourseGrades() {
+        shared = true;
+        return new GradeMapView(courseIds, grades, courseCount, gradedCourseCount);
+    }
+    
+    // Allocation-free accessors for checks that do not need a whole collection
+    public synchronized int getEnrolledCourseCount() {
+        return courseCount;
+    }
+    
+    public synchronized int getGradedCourseCount() {
+        return gradedCourseCount;
+    }
+    
+    public boolean isEnrolledIn(String courseCode) {
+        CourseCode known = CourseCode.lookup(courseCode);
+        return known != null && isEnrolledIn(known);
+    }
+    
+    public synchronized boolean isEnrolledIn(CourseCode courseCode) {
+        return slotOf(courseCode) >= 0;
+    }
+    
+    // The recorded grade, or null if the course is not graded or not enrolled
+    public synchronized Grade getGrade(CourseCode courseCode) {
+        int slot = slotOf(courseCode);
+        return slot < 0 || grades[slot] == NO_GRADE ? null : Grade.values()[grades[slot]];
+    }
+    
+    // Sums a per-course value over the enrolled courses, e.g. credits; runs outside the lock
+    public int sumOverEnrolledCourses(ToIntFunction<CourseCode> value) {
+        int[] ids;
+        int count;
+        synchronized (this) {
+            shared = true;
+            ids = courseIds;
+            count = courseCount;
+        }
+        int sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += value.applyAsInt(CourseCode.byOrdinal(ids[i]));
+        }
+        return sum;
+    }
+    
+    // Only for loaders that bring back a previously saved record with its original timestamp
+    public void setLastUpdated(LocalDateTime lastUpdated) { this.lastUpdated = lastUpdated; }
+    
     public void setStatus(StudentStatus status) { 
+        StudentStatus oldStatus = this.status;
         this.status = status;
         this.lastUpdated = LocalDateTime.now();
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.onStatusChanged(this, oldStatus);
+        }
+    }
+    
+    @Override
+    public void setFullName(String fullName) {
+        String oldName = this.fullName;
+        super.setFullName(fullName);
+        lastUpdated = LocalDateTime.now();
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.onNameChanged(this, oldName);
+        }
+    }
+    
+    @Override
+    public void setEmail(String email) {
+        String oldEmail = this.email;
+        super.setEmail(email);
+        lastUpdated = LocalDateTime.now();
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.onEmailChanged(this, oldEmail);
+        }
+    }
+    
+    public void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+    
+    // Graded courses of a snapshot of the enrollment arrays; ungraded slots are skipped
+    private static final class GradeMapView extends AbstractMap<String, Grade> {
+        private final int[] courseIds;
+        private final byte[] grades;
+        private final int count;
+        private final int gradedCount;
+        
+        GradeMapView(int[] courseIds, byte[] grades, int count, int gradedCount) {
+            this.courseIds = courseIds;
+            this.grades = grades;
+            this.count = count;
+            this.gradedCount = gradedCount;
+        }
+        
+        @Override
+        public int size() {
+            return gradedCount;
+        }
+        
+        @Override
+        public Grade get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            int id = IdDictionary.courseCodes().lookup((String) key);
+            int slot = id < 0 ? -1 : Arrays.binarySearch(courseIds, 0, count, id);
+            return slot < 0 || grades[slot] == NO_GRADE ? null : Grade.values()[grades[slot]];
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+        
+        @Override
+        public void forEach(BiConsumer<? super String, ? super Grade> action) {
+            Grade[] gradeValues = Grade.values();
+            for (int i = 0; i < count; i++) {
+                if (grades[i] != NO_GRADE) {
+                    action.accept(IdDictionary.courseCodes().valueOf(courseIds[i]), gradeValues[grades[i]]);
+                }
+            }
+        }
+        
+        @Override
+        public Set<Map.Entry<String, Grade>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Grade>>() {
+                @Override
+                public int size() {
+                    return gradedCount;
+                }
+                
+                @Override
+                public Iterator<Map.Entry<String, Grade>> iterator() {
+                    return new Iterator<Map.Entry<String, Grade>>() {
+                        private int next = advance(0);
+                        
+                        private int advance(int from) {
+                            while (from < count && grades[from] == NO_GRADE) {
+                                from++;
+                            }
+                            return from;
+                        }
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return next < count;
+                        }
+                        
+                        @Override
+                        public Map.Entry<String, Grade> next() {
+                            if (next >= count) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<String, Grade> entry = new AbstractMap.SimpleImmutableEntry<>(
+                                IdDictionary.courseCodes().valueOf(courseIds[next]), Grade.values()[grades[next]]);
+                            next = advance(next + 1);
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
     }
     
     @Override
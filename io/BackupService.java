@@ -0,0 +1,655 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Incremental backups. A backup folder holds a chain of layers: layer 0 is a full copy of
+// every student and course, and each later layer holds only the entities changed since the
+// backup before it, plus the keys deleted since then. An incremental backup hard-links the
+// previous backup's layers and writes one new layer, so its cost follows the number of
+// changes rather than the size of the roster. An entity belongs in the next layer when its
+// lastUpdated is not older than the start of the base backup, which also catches setters
+// called on it directly; saves and deletions are tracked by key through the MutationLog
+// callbacks. Each folder holds a complete chain plus a MANIFEST and can be restored on its
+// own; once the chain is long, or its deltas outgrow the live data, the next backup starts
+// a new full layer 0. The base's name is kept in a BASE file, so the next process carries on
+// with the chain instead of starting over.
+public class BackupService implements MutationLog {
+    private static final String MANIFEST = "MANIFEST";
+    private static final String BASE = "BASE";
+    private static final String FOLDER_PREFIX = "backup_";
+    private static final int MANIFEST_VERSION = 2;
+    private static final DateTimeFormatter FOLDER_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+    private static final String[] LAYER_KINDS = {"courses", "students", "deleted"};
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final Path backupDir;
+    private final int maxLayers;
+    private final ParallelCSVImporter csvImporter = new ParallelCSVImporter();
+    
+    // Keys saved or deleted since the last backup: a saved record may carry an older stamp,
+    // and a deleted one has none. Whether each still exists is looked up when the next layer
+    // is written, so a deletion needs no separate record.
+    private final Set<String> dirtyStudents = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirtyCourses = ConcurrentHashMap.newKeySet();
+    // The backup the next layer builds on and the time it started; null when there is none
+    private Path base;
+    private LocalDateTime baseStarted;
+    // Set when the base came from the BASE file: deletions made before this process started
+    // are found by comparing the base's keys with the live ones
+    private boolean baseFromDisk;
+    // Saves stamped before this time would be missed by a later process scanning lastUpdated,
+    // so each one retires the BASE file; it is the base's start, or that of the backup running
+    private volatile LocalDateTime trackedSince;
+    // Guards the BASE file against such a save landing while a backup records its base
+    private final Object baseFileLock = new Object();
+    private long unrecordedSaves;
+    private boolean baseFileWritten;
+    
+    // What one backup run wrote and what it shared with the previous backup
+    public static class BackupResult {
+        private final Path folder;
+        private final boolean full;
+        private final int changedEntities;
+        private final int linkedFiles;
+        private final long bytesWritten;
+        
+        BackupResult(Path folder, boolean full, int changedEntities, int linkedFiles, long bytesWritten) {
+            this.folder = folder;
+            this.full = full;
+            this.changedEntities = changedEntities;
+            this.linkedFiles = linkedFiles;
+            this.bytesWritten = bytesWritten;
+        }
+        
+        public Path getFolder() { return folder; }
+        public boolean isFull() { return full; }
+        public int getChangedEntities() { return changedEntities; }
+        public int getLinkedFiles() { return linkedFiles; }
+        public long getBytesWritten() { return bytesWritten; }
+    }
+    
+    // A student row waiting for its courses to be loaded before enrollments are applied
+    private static class StudentRecord {
+        final Student student;
+        final String enrollments;
+        final LocalDateTime lastUpdated;
+        
+        StudentRecord(Student student, String enrollments, LocalDateTime lastUpdated) {
+            this.student = student;
+            this.enrollments = enrollments;
+            this.lastUpdated = lastUpdated;
+        }
+    }
+    
+    // Where a restored row came from, so a rejection names its layer file and data row
+    private static class Source {
+        final String file;
+        final int row;
+        
+        Source(String file, int row) {
+            this.file = file;
+            this.row = row;
+        }
+        
+        void reject(ImportResult.Builder result, String key, String reason) {
+            result.reject(row, key, reason + " (" + file + ")");
+        }
+    }
+    
+    public BackupService(StudentService studentService, CourseService courseService, Path backupDir, int maxLayers) {
+        if (maxLayers < 1) {
+            throw new IllegalArgumentException("A backup needs at least one layer");
+        }
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.backupDir = backupDir;
+        this.maxLayers = maxLayers;
+        adoptBase();
+    }
+    
+    public synchronized BackupResult createBackup() throws IOException {
+        LocalDateTime started = LocalDateTime.now();
+        Path folder = backupDir.resolve(FOLDER_PREFIX + started.format(FOLDER_FORMAT));
+        Files.createDirectories(folder);
+        trackedSince = started;
+        long saves = unrecordedSaves();
+        
+        Properties previousManifest = base == null ? null : readManifest(base);
+        int layers = previousManifest == null ? 0 : Integer.parseInt(previousManifest.getProperty("layers"));
+        long deltaRows = previousManifest == null ? 0 : Long.parseLong(previousManifest.getProperty("deltaRows"));
+        long live = studentService.count() + courseService.count();
+        boolean full = previousManifest == null || layers >= maxLayers;
+        
+        Properties manifest = new Properties();
+        manifest.setProperty("version", String.valueOf(MANIFEST_VERSION));
+        manifest.setProperty("started", started.toString());
+        
+        int changed = 0;
+        int linked = 0;
+        long bytes = 0;
+        try {
+            List<Student> students = new ArrayList<>();
+            Set<String> deletedStudents = new LinkedHashSet<>();
+            List<Course> courses = new ArrayList<>();
+            Set<String> deletedCourses = new LinkedHashSet<>();
+            if (!full) {
+                Map<String, Set<String>> baseKeys = baseFromDisk ? backupKeys(base, layers) : Map.of();
+                if (baseKeys == null) {
+                    full = true;
+                } else {
+                    collect(dirtyStudents, studentService::findAll, Student::getId, Student::getLastUpdated,
+                        baseKeys.get("student"), students, deletedStudents);
+                    collect(dirtyCourses, courseService::findAll, Course::getCode, Course::getLastUpdated,
+                        baseKeys.get("course"), courses, deletedCourses);
+                    changed = students.size() + deletedStudents.size() + courses.size() + deletedCourses.size();
+                    full = deltaRows + changed > live;
+                }
+            }
+            if (full) {
+                // Cleared before reading, so a change racing with the backup is at worst written twice
+                dirtyStudents.clear();
+                dirtyCourses.clear();
+                students = studentService.findAll();
+                courses = courseService.findAll();
+                deletedStudents.clear();
+                deletedCourses.clear();
+                changed = students.size() + courses.size();
+                layers = 0;
+                deltaRows = 0;
+            } else {
+                for (int layer = 0; layer < layers; layer++) {
+                    for (String kind : LAYER_KINDS) {
+                        link(base.resolve(layerFile(kind, layer)), folder.resolve(layerFile(kind, layer)));
+                        linked++;
+                    }
+                }
+                deltaRows += changed;
+                manifest.setProperty("base", base.getFileName().toString());
+            }
+            
+            bytes += writeCourses(folder.resolve(layerFile("courses", layers)), courses);
+            bytes += writeStudents(folder.resolve(layerFile("students", layers)), students);
+            bytes += writeDeleted(folder.resolve(layerFile("deleted", layers)), deletedStudents, deletedCourses);
+            manifest.setProperty("layers", String.valueOf(layers + 1));
+            manifest.setProperty("deltaRows", String.valueOf(deltaRows));
+            
+            // The manifest goes last: a folder without one is an unfinished backup and never used as a base
+            Path temp = folder.resolve(MANIFEST + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                manifest.store(writer, "CCRM incremental backup");
+            }
+            Files.move(temp, folder.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // The drained keys are gone; the BASE file still describes a complete chain, and
+            // rescanning from its start recovers every edit, otherwise the next backup is full
+            adoptBase();
+            throw e;
+        }
+        
+        useBase(folder, started, saves);
+        return new BackupResult(folder, full, changed, linked, bytes);
+    }
+    
+    // Empties a dirty set, then adds the live entities stamped since the base or saved since it
+    // to changed, and the keys that are gone to deleted: those deleted since the base and, for
+    // a base taken from an earlier process, those it holds that no longer exist. Each key is
+    // removed before the entities are read, so a change made meanwhile either shows in what is
+    // read or marks the key dirty again for the next backup.
+    private <T> void collect(Set<String> dirty, Supplier<List<T>> findAll, Function<T, String> key,
+                             Function<T, LocalDateTime> lastUpdated, Set<String> baseKeys,
+                             List<T> changed, Set<String> deleted) {
+        Set<String> touched = new HashSet<>();
+        Iterator<String> keys = dirty.iterator();
+        while (keys.hasNext()) {
+            touched.add(keys.next());
+            keys.remove();
+        }
+        List<T> live = findAll.get();
+        Set<String> liveKeys = new HashSet<>(live.size() * 4 / 3 + 1);
+        for (T entity : live) {
+            String entityKey = key.apply(entity);
+            liveKeys.add(entityKey);
+            if (touched.contains(entityKey) || !lastUpdated.apply(entity).isBefore(baseStarted)) {
+                changed.add(entity);
+            }
+        }
+        for (String gone : touched) {
+            if (!liveKeys.contains(gone)) {
+                deleted.add(gone);
+            }
+        }
+        if (baseKeys != null) {
+            for (String gone : baseKeys) {
+                if (!liveKeys.contains(gone)) {
+                    deleted.add(gone);
+                }
+            }
+        }
+    }
+    
+    // Keys present once a backup's layers are applied, by kind, or null if a row cannot be read
+    private Map<String, Set<String>> backupKeys(Path folder, int layers) throws IOException {
+        Map<String, Set<String>> keys = Map.of("student", new HashSet<>(), "course", new HashSet<>());
+        for (int layer = 0; layer < layers; layer++) {
+            for (String kind : keys.keySet()) {
+                for (ParallelCSVImporter.Row<String> row : csvImporter.parse(
+                        folder.resolve(layerFile(kind + "s", layer)), BackupService::parseKey)) {
+                    if (row.isFailed()) {
+                        return null;
+                    }
+                    if (row.getValue() != null) {
+                        keys.get(kind).add(row.getValue());
+                    }
+                }
+            }
+            for (ParallelCSVImporter.Row<String[]> row : csvImporter.parse(
+                    folder.resolve(layerFile("deleted", layer)), BackupService::parseDeleted)) {
+                if (row.isFailed()) {
+                    return null;
+                }
+                if (row.getValue() != null) {
+                    keys.get(row.getValue()[0]).remove(row.getValue()[1]);
+                }
+            }
+        }
+        return keys;
+    }
+    
+    private static long writeStudents(Path file, List<Student> students) throws IOException {
+        try (CSVWriter writer = new CSVWriter(Files.newBufferedWriter(file))) {
+            writer.row("ID", "RegNo", "FullName", "Email", "Status", "LastUpdated", "Enrollments");
+            StringBuilder enrollments = new StringBuilder();
+            for (Student student : students) {
+                Map<String, Grade> grades = student.getCourseGrades();
+                enrollments.setLength(0);
+                for (String code : student.getEnrolledCourses()) {
+                    if (enrollments.length() > 0) {
+                        enrollments.append(';');
+                    }
+                    enrollments.append(code);
+                    Grade grade = grades.get(code);
+                    if (grade != null) {
+                        enrollments.append(':').append(grade.name());
+                    }
+                }
+                writer.field(student.getId())
+                    .field(student.getRegNo())
+                    .field(student.getFullName())
+                    .field(student.getEmail())
+                    .field(student.getStatus())
+                    .field(student.getLastUpdated().toString())
+                    .field(enrollments.toString())
+                    .endRow();
+            }
+        }
+        return Files.size(file);
+    }
+    
+    private static long writeCourses(Path file, List<Course> courses) throws IOException {
+        try (CSVWriter writer = new CSVWriter(Files.newBufferedWriter(file))) {
+            writer.row("Code", "Title", "Credits", "Instructor", "Semester", "Department", "Status", "LastUpdated");
+            for (Course course : courses) {
+                writer.field(course.getCode())
+                    .field(course.getTitle())
+                    .field(course.getCredits())
+                    .field(course.getInstructor())
+                    .field(course.getSemester())
+                    .field(course.getDepartment())
+                    .field(course.getStatus())
+                    .field(course.getLastUpdated().toString())
+                    .endRow();
+            }
+        }
+        return Files.size(file);
+    }
+    
+    private static long writeDeleted(Path file, Set<String> students, Set<String> courses) throws IOException {
+        try (CSVWriter writer = new CSVWriter(Files.newBufferedWriter(file))) {
+            writer.row("Kind", "Key");
+            for (String id : students) {
+                writer.row("student", id);
+            }
+            for (String code : courses) {
+                writer.row("course", code);
+            }
+        }
+        return Files.size(file);
+    }
+    
+    // Shares an unchanged layer with the previous backup, copying where links are unsupported
+    private static void link(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    // Restores a backup folder into empty services; every folder is a full state. Layers are
+    // applied oldest first, so a later row replaces an earlier one and a deletion removes it.
+    // Rows that cannot be read or loaded, and enrollments in courses that are not in the
+    // backup, are reported as rejections rather than dropped.
+    public synchronized SnapshotService.RestoreResult restore(Path folder) throws IOException {
+        if (studentService.count() > 0 || courseService.count() > 0) {
+            throw new IllegalStateException("Backups can only be restored into empty services");
+        }
+        forgetBase();
+        Properties manifest = readManifest(folder);
+        if (manifest == null) {
+            throw new FileNotFoundException("No backup manifest in " + folder);
+        }
+        if (Integer.parseInt(manifest.getProperty("version")) != MANIFEST_VERSION) {
+            throw new IOException("Unsupported backup version " + manifest.getProperty("version") + " in " + folder);
+        }
+        int layers = Integer.parseInt(manifest.getProperty("layers"));
+        
+        ImportResult.Builder courseResult = new ImportResult.Builder();
+        ImportResult.Builder studentResult = new ImportResult.Builder();
+        Map<String, Course> coursesByCode = new LinkedHashMap<>();
+        Map<String, StudentRecord> recordsById = new LinkedHashMap<>();
+        Map<String, Source> sources = new HashMap<>();
+        for (int layer = 0; layer < layers; layer++) {
+            String file = layerFile("courses", layer);
+            List<ParallelCSVImporter.Row<Course>> courseRows = csvImporter.parse(folder.resolve(file),
+                BackupService::parseCourse);
+            for (int i = 0; i < courseRows.size(); i++) {
+                ParallelCSVImporter.Row<Course> row = courseRows.get(i);
+                Source source = new Source(file, i + 1);
+                if (row.isFailed()) {
+                    source.reject(courseResult, row.getLine(), row.getError());
+                } else if (row.getValue() != null) {
+                    coursesByCode.put(row.getValue().getCode(), row.getValue());
+                    sources.put("course:" + row.getValue().getCode(), source);
+                }
+            }
+            
+            file = layerFile("students", layer);
+            List<ParallelCSVImporter.Row<StudentRecord>> studentRows = csvImporter.parse(folder.resolve(file),
+                BackupService::parseStudent);
+            for (int i = 0; i < studentRows.size(); i++) {
+                ParallelCSVImporter.Row<StudentRecord> row = studentRows.get(i);
+                Source source = new Source(file, i + 1);
+                if (row.isFailed()) {
+                    source.reject(studentResult, row.getLine(), row.getError());
+                } else if (row.getValue() != null) {
+                    recordsById.put(row.getValue().student.getId(), row.getValue());
+                    sources.put("student:" + row.getValue().student.getId(), source);
+                }
+            }
+            
+            file = layerFile("deleted", layer);
+            List<ParallelCSVImporter.Row<String[]>> deletedRows = csvImporter.parse(folder.resolve(file),
+                BackupService::parseDeleted);
+            for (int i = 0; i < deletedRows.size(); i++) {
+                ParallelCSVImporter.Row<String[]> row = deletedRows.get(i);
+                if (row.isFailed()) {
+                    // A deletion that cannot be read may leave a record in place that should be gone
+                    new Source(file, i + 1).reject(row.getLine().startsWith("course") ? courseResult : studentResult,
+                        row.getLine(), row.getError());
+                } else if (row.getValue() != null) {
+                    String[] deleted = row.getValue();
+                    (deleted[0].equals("course") ? coursesByCode : recordsById).remove(deleted[1]);
+                }
+            }
+        }
+        
+        Map<String, LocalDateTime> courseTimestamps = new HashMap<>();
+        coursesByCode.forEach((code, course) -> courseTimestamps.put(code, course.getLastUpdated()));
+        
+        List<Student> students = new ArrayList<>(recordsById.size());
+        for (StudentRecord record : recordsById.values()) {
+            Student student = record.student;
+            Source source = sources.get("student:" + student.getId());
+            for (String enrollment : record.enrollments.split(";")) {
+                if (enrollment.isEmpty()) {
+                    continue;
+                }
+                int separator = enrollment.lastIndexOf(':');
+                String code = separator < 0 ? enrollment : enrollment.substring(0, separator);
+                Course course = coursesByCode.get(code);
+                if (course == null) {
+                    source.reject(studentResult, student.getId(), "Enrollment in missing course " + code + " dropped");
+                    continue;
+                }
+                student.enrollInCourse(code);
+                course.enrollStudent(student.getId());
+                if (separator >= 0) {
+                    String grade = enrollment.substring(separator + 1);
+                    try {
+                        student.recordGrade(code, Grade.valueOf(grade));
+                    } catch (IllegalArgumentException e) {
+                        source.reject(studentResult, student.getId(),
+                            "Unknown grade " + grade + " in " + code + " dropped");
+                    }
+                }
+            }
+            student.setLastUpdated(record.lastUpdated);
+            students.add(student);
+        }
+        
+        // Enrolling students touched the courses; put their saved timestamps back
+        courseTimestamps.forEach((code, lastUpdated) -> coursesByCode.get(code).setLastUpdated(lastUpdated));
+        
+        List<Course> courses = new ArrayList<>(coursesByCode.values());
+        ImportResult loadedCourses = courseService.addAll(courses);
+        courseResult.accepted(loadedCourses.getAcceptedCount());
+        for (ImportResult.Rejection rejection : loadedCourses.getRejections()) {
+            sources.get("course:" + courses.get(rejection.getRow()).getCode())
+                .reject(courseResult, rejection.getKey(), rejection.getReason());
+        }
+        ImportResult loadedStudents = studentService.addAll(students);
+        studentResult.accepted(loadedStudents.getAcceptedCount());
+        for (ImportResult.Rejection rejection : loadedStudents.getRejections()) {
+            sources.get("student:" + students.get(rejection.getRow()).getId())
+                .reject(studentResult, rejection.getKey(), rejection.getReason());
+        }
+        
+        SnapshotService.RestoreResult result = new SnapshotService.RestoreResult(studentResult.build(),
+            courseResult.build());
+        // Once the services match the folder exactly, the next backup can build on it
+        if (result.getStudents().getRejectedCount() + result.getCourses().getRejectedCount() == 0) {
+            long saves = unrecordedSaves();
+            dirtyStudents.clear();
+            dirtyCourses.clear();
+            useBase(folder, LocalDateTime.parse(manifest.getProperty("started")), saves);
+        }
+        return result;
+    }
+    
+    // Row parsers: null skips a blank row, an exception rejects a malformed one
+    private static Course parseCourse(CSVTokenizer row) {
+        if (FileIOService.isBlank(row)) {
+            return null;
+        }
+        FileIOService.requireFields(row, 8);
+        Course course = new Course.Builder(row.field(0), row.field(1), row.intField(2))
+            .instructor(row.field(3))
+            .semester(row.enumField(4, Semester.class))
+            .department(row.field(5))
+            .build();
+        course.setStatus(row.enumField(6, CourseStatus.class));
+        course.setLastUpdated(LocalDateTime.parse(row.field(7)));
+        return course;
+    }
+    
+    private static StudentRecord parseStudent(CSVTokenizer row) {
+        if (FileIOService.isBlank(row)) {
+            return null;
+        }
+        FileIOService.requireFields(row, 7);
+        Student student = new Student(row.field(0), row.field(1), row.field(2), row.field(3));
+        student.setStatus(row.enumField(4, StudentStatus.class));
+        return new StudentRecord(student, row.field(6), LocalDateTime.parse(row.field(5)));
+    }
+    
+    private static String parseKey(CSVTokenizer row) {
+        return FileIOService.isBlank(row) ? null : row.field(0);
+    }
+    
+    private static String[] parseDeleted(CSVTokenizer row) {
+        if (FileIOService.isBlank(row)) {
+            return null;
+        }
+        FileIOService.requireFields(row, 2);
+        String kind = row.field(0);
+        if (!kind.equals("student") && !kind.equals("course")) {
+            throw new IllegalArgumentException("Unknown record kind " + kind);
+        }
+        return new String[] {kind, row.field(1)};
+    }
+    
+    // Most recent complete backup, or null if there is none
+    public Path latestBackup() throws IOException {
+        if (!Files.isDirectory(backupDir)) {
+            return null;
+        }
+        try (Stream<Path> folders = Files.list(backupDir)) {
+            return folders
+                .filter(folder -> folder.getFileName().toString().startsWith(FOLDER_PREFIX))
+                .filter(folder -> Files.exists(folder.resolve(MANIFEST)))
+                .max(Comparator.comparing(folder -> folder.getFileName().toString()))
+                .orElse(null);
+        }
+    }
+    
+    private static Properties readManifest(Path folder) throws IOException {
+        Path file = folder.resolve(MANIFEST);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties manifest = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            manifest.load(reader);
+        }
+        return manifest;
+    }
+    
+    // Takes over the backup named in the BASE file, if it is complete and readable
+    private void adoptBase() {
+        forgetBaseFields();
+        try {
+            Path file = backupDir.resolve(BASE);
+            if (!Files.exists(file)) {
+                return;
+            }
+            synchronized (baseFileLock) {
+                baseFileWritten = true;
+            }
+            Path folder = backupDir.resolve(Files.readString(file).trim());
+            Properties manifest = readManifest(folder);
+            if (manifest != null && Integer.parseInt(manifest.getProperty("version")) == MANIFEST_VERSION) {
+                base = folder;
+                baseStarted = LocalDateTime.parse(manifest.getProperty("started"));
+                baseFromDisk = true;
+                trackedSince = baseStarted;
+            }
+        } catch (IOException | RuntimeException e) {
+            // An unreadable BASE file only costs a full backup
+            forgetBaseFields();
+        }
+    }
+    
+    // Makes a complete backup the base; the BASE file only names it if no save it cannot
+    // account for has arrived since saves was read
+    private void useBase(Path folder, LocalDateTime started, long saves) throws IOException {
+        base = folder;
+        baseStarted = started;
+        baseFromDisk = false;
+        trackedSince = started;
+        synchronized (baseFileLock) {
+            Path file = backupDir.resolve(BASE);
+            if (unrecordedSaves != saves) {
+                Files.deleteIfExists(file);
+                baseFileWritten = false;
+                return;
+            }
+            Path temp = backupDir.resolve(BASE + ".tmp");
+            Files.writeString(temp, folder.getFileName().toString());
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            baseFileWritten = true;
+        }
+    }
+    
+    private void forgetBase() throws IOException {
+        forgetBaseFields();
+        synchronized (baseFileLock) {
+            Files.deleteIfExists(backupDir.resolve(BASE));
+            baseFileWritten = false;
+        }
+    }
+    
+    private void forgetBaseFields() {
+        base = null;
+        baseStarted = null;
+        baseFromDisk = false;
+        trackedSince = null;
+    }
+    
+    private long unrecordedSaves() {
+        synchronized (baseFileLock) {
+            return unrecordedSaves;
+        }
+    }
+    
+    private static String layerFile(String kind, int layer) {
+        return String.format("%s-%02d.csv", kind, layer);
+    }
+    
+    // MutationLog callbacks: only the key is recorded, the entity is read at backup time.
+    // Edits need no callback, the lastUpdated scan finds them.
+    
+    @Override
+    public void studentSaved(Student student) {
+        dirtyStudents.add(student.getId());
+        checkStamp(student.getLastUpdated());
+    }
+    
+    @Override
+    public void studentDeleted(String studentId) {
+        dirtyStudents.add(studentId);
+    }
+    
+    @Override
+    public void courseSaved(Course course) {
+        dirtyCourses.add(course.getCode());
+        checkStamp(course.getLastUpdated());
+    }
+    
+    @Override
+    public void courseDeleted(String courseCode) {
+        dirtyCourses.add(courseCode);
+    }
+    
+    // A record loaded with an older stamp (a restore or a reloaded snapshot) is only known to
+    // this process, so the BASE file must not outlive it
+    private void checkStamp(LocalDateTime lastUpdated) {
+        LocalDateTime since = trackedSince;
+        if (since == null || !lastUpdated.isBefore(since)) {
+            return;
+        }
+        synchronized (baseFileLock) {
+            unrecordedSaves++;
+            if (!baseFileWritten) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(backupDir.resolve(BASE));
+                baseFileWritten = false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// CSVWriter counterpart that encodes rows straight into a growable byte array as UTF-8.
+//
+// Numbers are written digit by digit and ASCII text byte by byte, so a row costs no format
+// parsing, boxing or intermediate strings. Quoting follows the same rules as CSVWriter. The
+// caller decides when to drain the bytes to a channel, or takes them as an array.
+public class ByteCSVWriter {
+    private byte[] buffer;
+    private int size;
+    private boolean firstField = true;
+    
+    public ByteCSVWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 64)];
+    }
+    
+    public ByteCSVWriter field(String value) {
+        separate();
+        if (value == null) {
+            return this;
+        }
+        boolean quote = CSVWriter.needsQuoting(value);
+        if (!isAscii(value)) {
+            put(quote ? "\"" + value.replace("\"", "\"\"") + "\"" : value);
+            return this;
+        }
+        
+        int length = value.length();
+        ensureCapacity(quote ? length * 2 + 2 : length);
+        if (quote) {
+            buffer[size++] = '"';
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer[size++] = '"';
+            }
+            buffer[size++] = (byte) c;
+        }
+        if (quote) {
+            buffer[size++] = '"';
+        }
+        return this;
+    }
+    
+    public ByteCSVWriter field(long value) {
+        separate();
+        putLong(value);
+        return this;
+    }
+    
+    public ByteCSVWriter field(Enum<?> value) {
+        return field(value == null ? null : value.name());
+    }
+    
+    // Fixed two-decimal value given in hundredths, e.g. 273 -> 2.73
+    public ByteCSVWriter fieldHundredths(int hundredths) {
+        separate();
+        if (hundredths < 0) {
+            ensureCapacity(1);
+            buffer[size++] = '-';
+            hundredths = -hundredths;
+        }
+        putLong(hundredths / 100);
+        int fraction = hundredths % 100;
+        ensureCapacity(3);
+        buffer[size++] = '.';
+        buffer[size++] = (byte) ('0' + fraction / 10);
+        buffer[size++] = (byte) ('0' + fraction % 10);
+        return this;
+    }
+    
+    public ByteCSVWriter row(String... values) {
+        for (String value : values) {
+            field(value);
+        }
+        return endRow();
+    }
+    
+    public ByteCSVWriter endRow() {
+        ensureCapacity(1);
+        buffer[size++] = '\n';
+        firstField = true;
+        return this;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    // Writes everything encoded so far and empties the buffer for reuse
+    public void drainTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, size);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        size = 0;
+    }
+    
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+    
+    private void separate() {
+        if (!firstField) {
+            ensureCapacity(1);
+            buffer[size++] = ',';
+        }
+        firstField = false;
+    }
+    
+    private void putLong(long value) {
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            if (value == Long.MIN_VALUE) {
+                put("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+    
+    private void put(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+    
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,231 @@
+package edu.ccrm.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// RFC 4180 tokenizer over UTF-8 bytes. Field contents are unescaped into one reusable
+// scratch array per record, so reading a record allocates nothing until a caller asks
+// for a String.
+public class CSVTokenizer {
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    
+    private final ByteBuffer input;
+    private byte[] scratch = new byte[256];
+    private int scratchLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+    private int recordStart;
+    private int recordEnd;
+    private ByteBuffer sliceView = ByteBuffer.wrap(scratch);
+    
+    public CSVTokenizer(ByteBuffer input) {
+        this.input = input;
+    }
+    
+    // Advances to the next record; returns false once the input is exhausted
+    public boolean nextRecord() {
+        if (!input.hasRemaining()) {
+            return false;
+        }
+        
+        fieldCount = 0;
+        scratchLength = 0;
+        recordStart = input.position();
+        recordEnd = -1;
+        
+        boolean more = true;
+        while (more) {
+            more = readField();
+        }
+        return true;
+    }
+    
+    // Reads one field; returns true when a comma says another field follows
+    private boolean readField() {
+        int start = scratchLength;
+        skipBlanks();
+        
+        int end;
+        if (input.hasRemaining() && input.get(input.position()) == QUOTE) {
+            input.get();
+            readQuoted();
+            end = scratchLength;
+            skipBlanks();
+            // Anything between the closing quote and the delimiter is kept, leniently
+            end = readUnquoted(end);
+        } else {
+            end = readUnquoted(start);
+        }
+        addField(start, end);
+        
+        if (!input.hasRemaining()) {
+            recordEnd = input.position();
+            return false;
+        }
+        byte delimiter = input.get();
+        if (delimiter == COMMA) {
+            return true;
+        }
+        recordEnd = input.position() - 1;
+        if (delimiter == CR) {
+            if (input.hasRemaining() && input.get(input.position()) == LF) {
+                input.get();
+            }
+        }
+        return false;
+    }
+    
+    private void readQuoted() {
+        while (input.hasRemaining()) {
+            byte b = input.get();
+            if (b == QUOTE) {
+                if (input.hasRemaining() && input.get(input.position()) == QUOTE) {
+                    input.get(); // escaped quote
+                } else {
+                    return;
+                }
+            }
+            append(b);
+        }
+    }
+    
+    // Copies bytes up to the next delimiter and returns the field end with trailing blanks trimmed
+    private int readUnquoted(int trimmedEnd) {
+        while (input.hasRemaining()) {
+            byte b = input.get(input.position());
+            if (b == COMMA || b == LF || b == CR) {
+                break;
+            }
+            input.get();
+            append(b);
+            if (b != ' ' && b != '\t') {
+                trimmedEnd = scratchLength;
+            }
+        }
+        scratchLength = trimmedEnd;
+        return trimmedEnd;
+    }
+    
+    private void skipBlanks() {
+        while (input.hasRemaining()) {
+            byte b = input.get(input.position());
+            if (b != ' ' && b != '\t') {
+                return;
+            }
+            input.get();
+        }
+    }
+    
+    private void append(byte b) {
+        if (scratchLength == scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            sliceView = ByteBuffer.wrap(scratch);
+        }
+        scratch[scratchLength++] = b;
+    }
+    
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+    
+    public int fieldCount() {
+        return fieldCount;
+    }
+    
+    // Read-only view of the field's bytes; the returned buffer is reused and valid until the next call
+    public ByteBuffer fieldSlice(int index) {
+        checkIndex(index);
+        sliceView.limit(fieldEnds[index]).position(fieldStarts[index]);
+        return sliceView;
+    }
+    
+    public String field(int index) {
+        checkIndex(index);
+        return new String(scratch, fieldStarts[index], fieldEnds[index] - fieldStarts[index], StandardCharsets.UTF_8);
+    }
+    
+    public int intField(int index) {
+        checkIndex(index);
+        int pos = fieldStarts[index];
+        int end = fieldEnds[index];
+        boolean negative = pos < end && scratch[pos] == '-';
+        if (negative || (pos < end && scratch[pos] == '+')) {
+            pos++;
+        }
+        if (pos == end) {
+            throw new NumberFormatException("Not a number: \"" + field(index) + "\"");
+        }
+        
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = scratch[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number: \"" + field(index) + "\"");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw new NumberFormatException("Out of range: \"" + field(index) + "\"");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Out of range: \"" + field(index) + "\"");
+        }
+        return (int) value;
+    }
+    
+    // Case-insensitive match against the constant names, without allocating a String
+    public <E extends Enum<E>> E enumField(int index, Class<E> type) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int length = fieldEnds[index] - start;
+        
+        for (E constant : type.getEnumConstants()) {
+            String name = constant.name();
+            if (name.length() != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && Character.toUpperCase((char) scratch[start + i]) == name.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("No " + type.getSimpleName() + " constant \"" + field(index) + "\"");
+    }
+    
+    // Byte range of the current record in the input, excluding the line terminator
+    public int recordStart() {
+        return recordStart;
+    }
+    
+    public int recordEnd() {
+        return recordEnd;
+    }
+    
+    // The current record as it appears in the input; allocates, so intended for error reporting
+    public String rawRecord() {
+        byte[] bytes = new byte[recordEnd - recordStart];
+        input.get(recordStart, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+// RFC 4180 writer matching CSVTokenizer: fields containing a delimiter, quote, line
+// break or edge whitespace are quoted, with embedded quotes doubled.
+public class CSVWriter implements Closeable {
+    private final Writer out;
+    private boolean firstField = true;
+    
+    public CSVWriter(Writer out) {
+        this.out = out;
+    }
+    
+    public CSVWriter field(String value) throws IOException {
+        separate();
+        if (value == null) {
+            return this;
+        }
+        if (needsQuoting(value)) {
+            out.write('"');
+            int start = 0;
+            int quote;
+            while ((quote = value.indexOf('"', start)) >= 0) {
+                out.write(value, start, quote + 1 - start);
+                out.write('"');
+                start = quote + 1;
+            }
+            out.write(value, start, value.length() - start);
+            out.write('"');
+        } else {
+            out.write(value);
+        }
+        return this;
+    }
+    
+    public CSVWriter field(int value) throws IOException {
+        separate();
+        out.write(Integer.toString(value));
+        return this;
+    }
+    
+    public CSVWriter field(Enum<?> value) throws IOException {
+        return field(value == null ? null : value.name());
+    }
+    
+    public CSVWriter row(String... values) throws IOException {
+        for (String value : values) {
+            field(value);
+        }
+        return endRow();
+    }
+    
+    public CSVWriter endRow() throws IOException {
+        out.write('\n');
+        firstField = true;
+        return this;
+    }
+    
+    private void separate() throws IOException {
+        if (!firstField) {
+            out.write(',');
+        }
+        firstField = false;
+    }
+    
+    static boolean needsQuoting(String value) {
+        int length = value.length();
+        if (length == 0) {
+            return false;
+        }
+        if (isBlank(value.charAt(0)) || isBlank(value.charAt(length - 1))) {
+            return true; // the tokenizer trims unquoted fields
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -1,24 +1,50 @@
 package edu.ccrm.io;
 
+import edu.ccrm.config.AppConfig;
 import edu.ccrm.domain.*;
 import edu.ccrm.service.*;
-import edu.ccrm.util.RecursiveUtils;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
 
 public class FileIOService {
+    private static final String ARCHIVE_SUFFIX = ".ccrm.gz";
+    private static final int EXPORT_BUFFER_BYTES = 1 << 20;
+    private static final int EXPORT_BLOCK_ROWS = 4096;
+    
     private final Path dataDir = Paths.get("data");
     private final Path backupDir = Paths.get("backups");
     private final StudentService studentService;
     private final CourseService courseService;
+    private final ParallelCSVImporter csvImporter = new ParallelCSVImporter();
+    private final SnapshotService snapshotService;
+    private final BackupService backupService;
+    private final TranscriptExporter transcriptExporter;
+    private final PartitionedExporter partitionedExporter;
+    private Journal journal;
     
     public FileIOService(StudentService studentService, CourseService courseService) {
         this.studentService = studentService;
         this.courseService = courseService;
+        this.snapshotService = new SnapshotService(studentService, courseService);
+        this.backupService = new BackupService(studentService, courseService, backupDir,
+            AppConfig.getInstance().getBackupMaxLayers());
+        studentService.addMutationLog(backupService);
+        courseService.addMutationLog(backupService);
+        this.transcriptExporter = new TranscriptExporter(studentService.getTranscriptService(),
+            AppConfig.getInstance().getAnalyticsParallelism());
+        this.partitionedExporter = new PartitionedExporter(studentService, courseService,
+            AppConfig.getInstance().getExportMaxOpenFiles());
         createDirectories();
     }
     
@@ -31,120 +57,323 @@ public class FileIOService {
         }
     }
     
-    public void importStudentsFromCSV(String filename) throws IOException {
+    public ImportResult importStudentsFromCSV(String filename) throws IOException {
         Path filePath = dataDir.resolve(filename);
         
         if (!Files.exists(filePath)) {
             throw new FileNotFoundException("File not found: " + filePath);
         }
         
-        try (Stream<String> lines = Files.lines(filePath)) {
-            lines.skip(1) // Skip header
-                .forEach(line -> {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 4) {
-                        try {
-                            studentService.addStudent(
-                                parts[0].trim(), 
-                                parts[1].trim(), 
-                                parts[2].trim(), 
-                                parts[3].trim()
-                            );
-                        } catch (Exception e) {
-                            System.err.println("Error importing student: " + line);
-                        }
-                    }
-                });
-        }
+        // Large files are parsed in parallel chunks, then loaded as one validated batch
+        List<ParallelCSVImporter.Row<Student>> rows = csvImporter.parse(filePath, FileIOService::parseStudent);
+        return bulkLoad(rows, studentService::addAll);
     }
     
-    public void importCoursesFromCSV(String filename) throws IOException {
+    public ImportResult importCoursesFromCSV(String filename) throws IOException {
         Path filePath = dataDir.resolve(filename);
         
         if (!Files.exists(filePath)) {
             throw new FileNotFoundException("File not found: " + filePath);
         }
         
-        try (Stream<String> lines = Files.lines(filePath)) {
-            lines.skip(1)
-                .forEach(line -> {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 6) {
-                        try {
-                            courseService.addCourse(
-                                parts[0].trim(),
-                                parts[1].trim(),
-                                Integer.parseInt(parts[2].trim()),
-                                parts[3].trim(),
-                                Semester.valueOf(parts[4].trim().toUpperCase()),
-                                parts[5].trim()
-                            );
-                        } catch (Exception e) {
-                            System.err.println("Error importing course: " + line);
-                        }
-                    }
-                });
+        List<ParallelCSVImporter.Row<Course>> rows = csvImporter.parse(filePath, FileIOService::parseCourse);
+        return bulkLoad(rows, courseService::addAll);
+    }
+    
+    // Hands parsed records to a bulk loader and reports rejections by 1-based data row
+    private static <T> ImportResult bulkLoad(List<ParallelCSVImporter.Row<T>> rows,
+                                             Function<List<T>, ImportResult> loader) {
+        ImportResult.Builder result = new ImportResult.Builder();
+        List<T> batch = new ArrayList<>(rows.size());
+        int[] rowNumbers = new int[rows.size()];
+        
+        for (int i = 0; i < rows.size(); i++) {
+            ParallelCSVImporter.Row<T> row = rows.get(i);
+            if (row.isFailed()) {
+                result.reject(i + 1, row.getLine(), row.getError());
+            } else if (row.getValue() != null) {
+                rowNumbers[batch.size()] = i + 1;
+                batch.add(row.getValue());
+            }
+        }
+        
+        ImportResult loaded = loader.apply(batch);
+        result.accepted(loaded.getAcceptedCount());
+        for (ImportResult.Rejection rejection : loaded.getRejections()) {
+            result.reject(rowNumbers[rejection.getRow()], rejection.getKey(), rejection.getReason());
+        }
+        return result.build();
+    }
+    
+    // Row parsers: return null to skip blank rows, throw to reject a malformed one
+    private static Student parseStudent(CSVTokenizer row) {
+        if (isBlank(row)) {
+            return null;
+        }
+        requireFields(row, 4);
+        return new Student(row.field(0), row.field(1), row.field(2), row.field(3));
+    }
+    
+    private static Course parseCourse(CSVTokenizer row) {
+        if (isBlank(row)) {
+            return null;
+        }
+        requireFields(row, 6);
+        return new Course.Builder(row.field(0), row.field(1), row.intField(2))
+            .instructor(row.field(3))
+            .semester(row.enumField(4, Semester.class))
+            .department(row.field(5))
+            .build();
+    }
+    
+    static boolean isBlank(CSVTokenizer row) {
+        return row.fieldCount() == 1 && !row.fieldSlice(0).hasRemaining();
+    }
+    
+    static void requireFields(CSVTokenizer row, int expected) {
+        if (row.fieldCount() < expected) {
+            throw new IllegalArgumentException(
+                "Expected " + expected + " fields but found " + row.fieldCount());
         }
     }
     
+    // Exports in parallel once the roster is large enough for the split to pay off
     public void exportStudentsToCSV(String filename) throws IOException {
+        exportStudentsToCSV(filename, studentService.count() >= AppConfig.getInstance().getParallelExportMinRows());
+    }
+    
+    public void exportStudentsToCSV(String filename, boolean parallel) throws IOException {
         Path filePath = dataDir.resolve(filename);
-        
-        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(filePath))) {
-            writer.println("ID,RegNo,FullName,Email,Status,GPA");
-            
-            studentService.findAll().forEach(student -> {
-                writer.printf("%s,%s,%s,%s,%s,%.2f%n",
-                    student.getId(),
-                    student.getRegNo(),
-                    student.getFullName(),
-                    student.getEmail(),
-                    student.getStatus(),
-                    student.calculateGPA());
-            });
-        }
+        writeCSV(filePath, studentService.findAll(), parallel, STUDENT_HEADER, FileIOService::encodeStudent);
         
         System.out.println("Students exported to: " + filePath);
     }
     
     public void exportCoursesToCSV(String filename) throws IOException {
+        exportCoursesToCSV(filename, courseService.count() >= AppConfig.getInstance().getParallelExportMinRows());
+    }
+    
+    public void exportCoursesToCSV(String filename, boolean parallel) throws IOException {
         Path filePath = dataDir.resolve(filename);
+        writeCSV(filePath, courseService.findAll(), parallel, COURSE_HEADER, FileIOService::encodeCourse);
         
-        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(filePath))) {
-            writer.println("Code,Title,Credits,Instructor,Semester,Department,Status");
+        System.out.println("Courses exported to: " + filePath);
+    }
+    
+    // Export row layouts, shared with the partitioned export
+    static final String[] STUDENT_HEADER = {"ID", "RegNo", "FullName", "Email", "Status", "GPA"};
+    static final String[] COURSE_HEADER = {"Code", "Title", "Credits", "Instructor", "Semester", "Department", "Status"};
+    
+    static void encodeStudent(ByteCSVWriter writer, Student student) {
+        writer.field(student.getId())
+            .field(student.getRegNo())
+            .field(student.getFullName())
+            .field(student.getEmail())
+            .field(student.getStatus())
+            .fieldHundredths(student.getGPAHundredths())
+            .endRow();
+    }
+    
+    static void encodeCourse(ByteCSVWriter writer, Course course) {
+        writer.field(course.getCode())
+            .field(course.getTitle())
+            .field(course.getCredits())
+            .field(course.getInstructor())
+            .field(course.getSemester())
+            .field(course.getDepartment())
+            .field(course.getStatus())
+            .endRow();
+    }
+    
+    // Courses per department and semester, students per department, plus a manifest of row
+    // counts and sizes, under data/partitions_<ts>/
+    public PartitionedExporter.ExportResult exportPartitioned() throws IOException {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        PartitionedExporter.ExportResult result = partitionedExporter.export(dataDir.resolve("partitions_" + timestamp));
+        System.out.printf("Exported %d partitions (%s) to %s%n",
+            result.getPartitions().size(), formatBytes(result.getTotalBytes()), result.getFolder());
+        return result;
+    }
+    
+    // Rows are encoded into a large byte buffer that is drained to the file whenever it fills.
+    // In parallel, blocks of rows are encoded on separate threads and written in row order.
+    private static <T> void writeCSV(Path file, List<T> rows, boolean parallel, String[] header,
+                                     BiConsumer<ByteCSVWriter, T> encoder) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteCSVWriter writer = new ByteCSVWriter(EXPORT_BUFFER_BYTES);
+            writer.row(header);
+            if (!parallel) {
+                for (T row : rows) {
+                    encoder.accept(writer, row);
+                    if (writer.size() >= EXPORT_BUFFER_BYTES) {
+                        writer.drainTo(channel);
+                    }
+                }
+                writer.drainTo(channel);
+                return;
+            }
             
-            courseService.findAll().forEach(course -> {
-                writer.printf("%s,%s,%d,%s,%s,%s,%s%n",
-                    course.getCode(),
-                    course.getTitle(),
-                    course.getCredits(),
-                    course.getInstructor(),
-                    course.getSemester(),
-                    course.getDepartment(),
-                    course.getStatus());
-            });
+            writer.drainTo(channel);
+            int blocks = (rows.size() + EXPORT_BLOCK_ROWS - 1) / EXPORT_BLOCK_ROWS;
+            OrderedBlocks.run(blocks, AppConfig.getInstance().getAnalyticsParallelism(), block -> {
+                ByteCSVWriter blockWriter = new ByteCSVWriter(EXPORT_BUFFER_BYTES / 4);
+                int from = block * EXPORT_BLOCK_ROWS;
+                for (T row : rows.subList(from, Math.min(from + EXPORT_BLOCK_ROWS, rows.size()))) {
+                    encoder.accept(blockWriter, row);
+                }
+                return blockWriter;
+            }, blockWriter -> blockWriter.drainTo(channel));
+        }
+    }
+    
+    // Renders transcripts in parallel, one file per student under data/transcripts_<ts>/ or all
+    // of them in data/transcripts_<ts>.txt; progress counts transcripts as they are rendered
+    public Path exportTranscripts(List<Student> students, boolean filePerStudent, AtomicLong progress)
+            throws IOException {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        if (filePerStudent) {
+            Path directory = dataDir.resolve("transcripts_" + timestamp);
+            transcriptExporter.writeFiles(students, directory, progress);
+            return directory;
         }
         
-        System.out.println("Courses exported to: " + filePath);
+        Path file = dataDir.resolve("transcripts_" + timestamp + ".txt");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            transcriptExporter.writeConcatenated(students, channel, progress);
+        }
+        return file;
     }
     
+    // Incremental: only the records changed since the last backup are written, its files are
+    // hard-linked. The chain carries on across sessions; the first backup is a full one.
     public void createBackup() throws IOException {
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
-        String timestamp = now.format(formatter);
-        Path backupFolder = backupDir.resolve("backup_" + timestamp);
+        BackupService.BackupResult result = backupService.createBackup();
         
-        Files.createDirectories(backupFolder);
+        System.out.println((result.isFull() ? "Full backup created: " : "Backup created: ") + result.getFolder());
+        System.out.printf("Changed records: %d, files shared with previous backup: %d%n",
+            result.getChangedEntities(), result.getLinkedFiles());
+        System.out.println("New data written: " + formatBytes(result.getBytesWritten()));
+    }
+    
+    // Restores a backup folder by name (for example backup_2024-01-31_12-00-00-000)
+    public void restoreBackup(String name) throws IOException {
+        Path folder = backupDir.resolve(name);
+        SnapshotService.RestoreResult result = backupService.restore(folder);
+        System.out.printf("Restored %d students and %d courses from %s%n",
+            result.getStudents().getAcceptedCount(), result.getCourses().getAcceptedCount(), folder);
+        for (ImportResult.Rejection rejection : result.getCourses().getRejections()) {
+            System.out.println("  Course " + rejection);
+        }
+        for (ImportResult.Rejection rejection : result.getStudents().getRejections()) {
+            System.out.println("  Student " + rejection);
+        }
+    }
+    
+    // Streams a snapshot through parallel block compression into a single .gz archive
+    public Path createArchive() throws IOException {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS"));
+        Path archive = backupDir.resolve("backup_" + timestamp + ARCHIVE_SUFFIX);
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
         
-        // Export current data to backup folder
-        exportStudentsToCSV(backupFolder.resolve("students.csv").toString());
-        exportCoursesToCSV(backupFolder.resolve("courses.csv").toString());
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            try (ParallelGzipChannel gzip = new ParallelGzipChannel(channel)) {
+                snapshotService.write(gzip);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, archive, StandardCopyOption.ATOMIC_MOVE);
         
-        System.out.println("Backup created: " + backupFolder);
+        System.out.println("Archive created: " + archive + " (" + formatBytes(Files.size(archive)) + ")");
+        return archive;
+    }
+    
+    // Decompresses straight into the services; nothing is staged on disk
+    public void restoreArchive(String name) throws IOException {
+        Path archive = backupDir.resolve(name);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive), 64 * 1024)) {
+            SnapshotService.RestoreResult result = snapshotService.read(Channels.newChannel(in));
+            System.out.printf("Restored %d students and %d courses from %s%n",
+                result.getStudents().getAcceptedCount(), result.getCourses().getAcceptedCount(), archive);
+        }
+    }
+    
+    public void saveSnapshot() throws IOException {
+        Path snapshotFile = getSnapshotFile();
         
-        // Use recursive utility to show backup size
-        long backupSize = RecursiveUtils.calculateDirectorySize(backupFolder);
-        System.out.println("Backup size: " + formatBytes(backupSize));
+        // Mutations made while the snapshot is written land in the fresh journal; the rotated
+        // one is only dropped once the snapshot covering it is safely on disk
+        if (journal != null) {
+            journal.rotate(getRotatedJournalFile());
+        }
+        snapshotService.save(snapshotFile);
+        Files.deleteIfExists(getRotatedJournalFile());
+        System.out.println("Snapshot saved to: " + snapshotFile + " (" + formatBytes(Files.size(snapshotFile)) + ")");
+    }
+    
+    // Returns false when there is no snapshot to restore
+    public boolean restoreSnapshot() throws IOException {
+        Path snapshotFile = getSnapshotFile();
+        if (!Files.exists(snapshotFile)) {
+            return false;
+        }
+        
+        SnapshotService.RestoreResult result = snapshotService.restore(snapshotFile);
+        System.out.printf("Restored %d students and %d courses from %s%n",
+            result.getStudents().getAcceptedCount(), result.getCourses().getAcceptedCount(), snapshotFile);
+        return true;
+    }
+    
+    public Path getSnapshotFile() {
+        return dataDir.resolve("ccrm.snapshot");
+    }
+    
+    // Rebuilds state from the last snapshot plus the journal written since, then starts
+    // journaling every further change. Returns false when there was nothing to recover.
+    public boolean recover() throws IOException {
+        // The recovered state is the one the last session's backups were tracking, so the
+        // backup service does not count it as new saves
+        studentService.removeMutationLog(backupService);
+        courseService.removeMutationLog(backupService);
+        boolean restored;
+        int replayed;
+        try {
+            restored = restoreSnapshot();
+            replayed = Journal.replay(getRotatedJournalFile(), studentService, courseService)
+                + Journal.replay(getJournalFile(), studentService, courseService);
+        } finally {
+            studentService.addMutationLog(backupService);
+            courseService.addMutationLog(backupService);
+        }
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " journal records");
+        }
+        
+        journal = new Journal(getJournalFile(), AppConfig.getInstance().getJournalFsyncIntervalMillis());
+        studentService.addMutationLog(journal);
+        courseService.addMutationLog(journal);
+        return restored || replayed > 0;
+    }
+    
+    // Flushes and closes the journal; call once on shutdown
+    public void close() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        studentService.removeMutationLog(journal);
+        courseService.removeMutationLog(journal);
+        journal.close();
+        journal = null;
+    }
+    
+    public Path getJournalFile() {
+        return dataDir.resolve("ccrm.journal");
+    }
+    
+    private Path getRotatedJournalFile() {
+        return dataDir.resolve("ccrm.journal.1");
     }
     
     private String formatBytes(long bytes) {
@@ -0,0 +1,590 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead journal of service mutations with group commit.
+//
+// Mutating threads only encode their record into an in-memory batch; a committer thread
+// writes the batch and fsyncs once per interval, so throughput is not bound by one fsync
+// per operation. Records are [payload length][CRC32][payload]; replay stops at the first
+// torn or corrupt record and truncates it away. Once a write fails, checkWritable refuses every
+// later service mutation instead of letting changes pile up that can no longer reach the disk.
+public class Journal implements MutationLog, Closeable {
+    private static final byte STUDENT_SAVED = 1;
+    private static final byte STUDENT_UPDATED = 2;
+    private static final byte STUDENT_STATUS = 3;
+    private static final byte STUDENT_DELETED = 4;
+    private static final byte ENROLLED = 5;
+    private static final byte UNENROLLED = 6;
+    private static final byte GRADE_RECORDED = 7;
+    private static final byte COURSE_SAVED = 8;
+    private static final byte COURSE_UPDATED = 9;
+    private static final byte COURSE_SEMESTER = 10;
+    private static final byte COURSE_STATUS = 11;
+    private static final byte COURSE_DELETED = 12;
+    
+    private static final int HEADER_SIZE = 8;
+    private static final byte NO_GRADE = -1;
+    
+    private final Path file;
+    private final long fsyncIntervalMillis;
+    private FileChannel channel;
+    
+    // Guards the pending batch and sequence numbers
+    private final ReentrantLock batchLock = new ReentrantLock();
+    private final Condition durable = batchLock.newCondition();
+    private final Condition closing = batchLock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+    
+    // Serializes channel writes between the committer, flush() and rotate()
+    private final Object commitLock = new Object();
+    private final Thread committer;
+    
+    private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1024));
+    
+    public Journal(Path file, long fsyncIntervalMillis) throws IOException {
+        this.file = file;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.channel = openForAppend(file);
+        this.committer = new Thread(this::runCommitter, "ccrm-journal-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+    
+    private static FileChannel openForAppend(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    
+    // MutationLog callbacks, each encoded as one journal record
+    
+    @Override
+    public void studentSaved(Student student) {
+        Set<String> enrolled = student.getEnrolledCourses();
+        Map<String, Grade> grades = student.getCourseGrades();
+        ByteBuffer out = begin(STUDENT_SAVED);
+        out = putString(out, student.getId());
+        out = putString(out, student.getRegNo());
+        out = putString(out, student.getFullName());
+        out = putString(out, student.getEmail());
+        out = ensure(out, 5);
+        out.put((byte) student.getStatus().ordinal());
+        out.putInt(enrolled.size());
+        for (String code : enrolled) {
+            out = putString(out, code);
+            out = ensure(out, 1);
+            Grade grade = grades.get(code);
+            out.put(grade == null ? NO_GRADE : (byte) grade.ordinal());
+        }
+        append(out);
+    }
+    
+    @Override
+    public void studentUpdated(String studentId, String fullName, String email) {
+        ByteBuffer out = begin(STUDENT_UPDATED);
+        out = putString(out, studentId);
+        out = putString(out, fullName);
+        out = putString(out, email);
+        append(out);
+    }
+    
+    @Override
+    public void studentStatusChanged(String studentId, StudentStatus status) {
+        ByteBuffer out = putString(begin(STUDENT_STATUS), studentId);
+        out = ensure(out, 1);
+        out.put((byte) status.ordinal());
+        append(out);
+    }
+    
+    @Override
+    public void studentDeleted(String studentId) {
+        append(putString(begin(STUDENT_DELETED), studentId));
+    }
+    
+    @Override
+    public void enrolled(String studentId, String courseCode) {
+        append(putString(putString(begin(ENROLLED), studentId), courseCode));
+    }
+    
+    @Override
+    public void unenrolled(String studentId, String courseCode) {
+        append(putString(putString(begin(UNENROLLED), studentId), courseCode));
+    }
+    
+    @Override
+    public void gradeRecorded(String studentId, String courseCode, Grade grade) {
+        ByteBuffer out = putString(putString(begin(GRADE_RECORDED), studentId), courseCode);
+        out = ensure(out, 1);
+        out.put((byte) grade.ordinal());
+        append(out);
+    }
+    
+    @Override
+    public void courseSaved(Course course) {
+        ByteBuffer out = begin(COURSE_SAVED);
+        out = putString(out, course.getCode());
+        out = putString(out, course.getTitle());
+        out = ensure(out, 4);
+        out.putInt(course.getCredits());
+        out = putString(out, course.getInstructor());
+        out = ensure(out, 1);
+        out.put((byte) course.getSemester().ordinal());
+        out = putString(out, course.getDepartment());
+        out = ensure(out, 1);
+        out.put((byte) course.getStatus().ordinal());
+        append(out);
+    }
+    
+    @Override
+    public void courseUpdated(String courseCode, String title, String instructor) {
+        append(putString(putString(putString(begin(COURSE_UPDATED), courseCode), title), instructor));
+    }
+    
+    @Override
+    public void courseSemesterChanged(String courseCode, Semester semester) {
+        ByteBuffer out = putString(begin(COURSE_SEMESTER), courseCode);
+        out = ensure(out, 1);
+        out.put((byte) semester.ordinal());
+        append(out);
+    }
+    
+    @Override
+    public void courseStatusChanged(String courseCode, CourseStatus status) {
+        ByteBuffer out = putString(begin(COURSE_STATUS), courseCode);
+        out = ensure(out, 1);
+        out.put((byte) status.ordinal());
+        append(out);
+    }
+    
+    @Override
+    public void courseDeleted(String courseCode) {
+        append(putString(begin(COURSE_DELETED), courseCode));
+    }
+    
+    // Record encoding into a per-thread scratch buffer, outside the batch lock
+    
+    private ByteBuffer begin(byte type) {
+        ByteBuffer out = scratch.get();
+        out.clear();
+        out.position(HEADER_SIZE);
+        out.put(type);
+        return out;
+    }
+    
+    private ByteBuffer ensure(ByteBuffer out, int bytes) {
+        if (out.remaining() >= bytes) {
+            return out;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+        out.flip();
+        larger.put(out);
+        scratch.set(larger);
+        return larger;
+    }
+    
+    private ByteBuffer putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out = ensure(out, 4);
+            out.putInt(-1);
+            return out;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out = ensure(out, 4 + bytes.length);
+        out.putInt(bytes.length);
+        out.put(bytes);
+        return out;
+    }
+    
+    // Services call this before applying a change, so once a write has failed every later
+    // operation is refused instead of being applied in memory only
+    @Override
+    public void checkWritable() {
+        batchLock.lock();
+        try {
+            checkOpen();
+        } finally {
+            batchLock.unlock();
+        }
+    }
+    
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Journal write failed, change not saved to disk: "
+                + failure.getMessage(), failure);
+        }
+    }
+    
+    // Stamps the header and copies the finished record into the pending batch. A write that
+    // fails between checkWritable and here is thrown to the service, which reports it.
+    private void append(ByteBuffer record) {
+        int payloadLength = record.position() - HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, payloadLength);
+        record.putInt(0, payloadLength);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        
+        batchLock.lock();
+        try {
+            checkOpen();
+            if (pending.remaining() < record.remaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + record.remaining()));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            pending.put(record);
+            appendedSequence++;
+        } finally {
+            batchLock.unlock();
+        }
+    }
+    
+    // Group commit
+    
+    private void runCommitter() {
+        while (true) {
+            batchLock.lock();
+            try {
+                if (!closed) {
+                    closing.await(fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+                if (closed && pending.position() == 0) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                batchLock.unlock();
+            }
+            
+            try {
+                commit();
+            } catch (IOException e) {
+                System.err.println("Journal write failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+    
+    // Writes and fsyncs everything appended so far; returns once it is durable
+    private void commit() throws IOException {
+        synchronized (commitLock) {
+            long sequence;
+            batchLock.lock();
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                ByteBuffer swap = writing;
+                writing = pending;
+                pending = swap;
+                pending.clear();
+                sequence = appendedSequence;
+            } finally {
+                batchLock.unlock();
+            }
+            
+            try {
+                writing.flip();
+                if (writing.hasRemaining()) {
+                    while (writing.hasRemaining()) {
+                        channel.write(writing);
+                    }
+                    channel.force(false);
+                }
+                writing.clear();
+            } catch (IOException e) {
+                batchLock.lock();
+                try {
+                    failure = e;
+                    durable.signalAll();
+                } finally {
+                    batchLock.unlock();
+                }
+                throw e;
+            }
+            
+            batchLock.lock();
+            try {
+                durableSequence = sequence;
+                durable.signalAll();
+            } finally {
+                batchLock.unlock();
+            }
+        }
+    }
+    
+    // Sequence number of the most recent record; pass it to awaitDurable to wait for the fsync
+    public long lastSequence() {
+        batchLock.lock();
+        try {
+            return appendedSequence;
+        } finally {
+            batchLock.unlock();
+        }
+    }
+    
+    public void awaitDurable(long sequence) throws IOException, InterruptedException {
+        batchLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                durable.await();
+            }
+        } finally {
+            batchLock.unlock();
+        }
+    }
+    
+    public void flush() throws IOException {
+        commit();
+    }
+    
+    // Moves the current journal aside (to be discarded once a snapshot covers it) and
+    // continues appending to a fresh file
+    public void rotate(Path archive) throws IOException {
+        synchronized (commitLock) {
+            commit();
+            channel.close();
+            Files.move(file, archive, StandardCopyOption.REPLACE_EXISTING);
+            channel = openForAppend(file);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        batchLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closing.signalAll();
+        } finally {
+            batchLock.unlock();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            commit();
+        } finally {
+            channel.close();
+        }
+    }
+    
+    // Replay
+    
+    // Re-applies every intact record of a journal file, applying enrollments and grades to
+    // the domain objects directly since they were validated when first recorded. Saves
+    // replace any entity with the same key, and enrollments, grades and status changes just
+    // set their value again, so replaying records a snapshot already includes converges on
+    // the same state. Records whose student or course no longer exists are reported and
+    // skipped. Detach any journal from the services before replaying. Returns the number of
+    // records read.
+    public static int replay(Path file, StudentService studentService, CourseService courseService)
+            throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        
+        int records = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            ByteBuffer payload = ByteBuffer.allocate(4096);
+            long position = 0;
+            
+            while (true) {
+                header.clear();
+                if (!readFully(in, header, position)) {
+                    break;
+                }
+                int length = header.getInt(0);
+                int checksum = header.getInt(4);
+                if (length <= 0 || position + HEADER_SIZE + length > in.size()) {
+                    break;
+                }
+                if (payload.capacity() < length) {
+                    payload = ByteBuffer.allocate(length);
+                }
+                payload.clear().limit(length);
+                readFully(in, payload, position + HEADER_SIZE);
+                
+                CRC32 crc = new CRC32();
+                crc.update(payload.array(), 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                
+                payload.flip();
+                try {
+                    apply(payload, studentService, courseService);
+                } catch (RuntimeException e) {
+                    System.err.println("Skipped journal record at offset " + position + ": " + e.getMessage());
+                }
+                records++;
+                position += HEADER_SIZE + length;
+            }
+            
+            if (position < in.size()) {
+                System.err.println("Discarding torn journal tail at offset " + position);
+                in.truncate(position);
+            }
+        }
+        return records;
+    }
+    
+    private static boolean readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static void apply(ByteBuffer in, StudentService studentService, CourseService courseService) {
+        byte type = in.get();
+        switch (type) {
+            case STUDENT_SAVED -> {
+                Student student = new Student(getString(in), getString(in), getString(in), getString(in));
+                student.setStatus(StudentStatus.values()[in.get()]);
+                int enrollments = in.getInt();
+                for (int i = 0; i < enrollments; i++) {
+                    String code = getString(in);
+                    byte grade = in.get();
+                    Course course = courseService.findById(code);
+                    if (course != null) {
+                        student.enrollInCourse(code);
+                        course.enrollStudent(student.getId());
+                        if (grade != NO_GRADE) {
+                            student.recordGrade(code, Grade.values()[grade]);
+                        }
+                    }
+                }
+                try {
+                    studentService.save(student);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            case STUDENT_UPDATED -> {
+                Student student = requireStudent(studentService, getString(in));
+                student.setFullName(getString(in));
+                student.setEmail(getString(in));
+            }
+            case STUDENT_STATUS -> requireStudent(studentService, getString(in))
+                .setStatus(StudentStatus.values()[in.get()]);
+            case STUDENT_DELETED -> {
+                try {
+                    studentService.delete(getString(in));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            case ENROLLED, UNENROLLED -> {
+                Student student = requireStudent(studentService, getString(in));
+                Course course = requireCourse(courseService, getString(in));
+                if (type == ENROLLED) {
+                    student.enrollInCourse(course.getCode());
+                    course.enrollStudent(student.getId());
+                } else {
+                    student.unenrollFromCourse(course.getCode());
+                    course.unenrollStudent(student.getId());
+                }
+            }
+            case GRADE_RECORDED -> requireStudent(studentService, getString(in))
+                .recordGrade(getString(in), Grade.values()[in.get()]);
+            case COURSE_SAVED -> {
+                String code = getString(in);
+                String title = getString(in);
+                int credits = in.getInt();
+                Course course = new Course.Builder(code, title, credits)
+                    .instructor(getString(in))
+                    .semester(Semester.values()[in.get()])
+                    .department(getString(in))
+                    .build();
+                course.setStatus(CourseStatus.values()[in.get()]);
+                Course existing = courseService.findById(code);
+                if (existing != null) {
+                    existing.forEachEnrolledStudent(course::enrollStudent);
+                }
+                try {
+                    courseService.save(course);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            case COURSE_UPDATED -> {
+                Course course = requireCourse(courseService, getString(in));
+                course.setTitle(getString(in));
+                course.setInstructor(getString(in));
+            }
+            case COURSE_SEMESTER -> requireCourse(courseService, getString(in))
+                .setSemester(Semester.values()[in.get()]);
+            case COURSE_STATUS -> requireCourse(courseService, getString(in))
+                .setStatus(CourseStatus.values()[in.get()]);
+            case COURSE_DELETED -> {
+                try {
+                    courseService.delete(getString(in));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+    
+    private static Student requireStudent(StudentService studentService, String id) {
+        Student student = studentService.findById(id);
+        if (student == null) {
+            throw new IllegalStateException("Unknown student " + id);
+        }
+        return student;
+    }
+    
+    private static Course requireCourse(CourseService courseService, String code) {
+        Course course = courseService.findById(code);
+        if (course == null) {
+            throw new IllegalStateException("Unknown course " + code);
+        }
+        return course;
+    }
+    
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,51 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+// Runs numbered block tasks on a dedicated pool and hands their results to a sink in block
+// order. At most two blocks per thread are in flight, so a slow sink bounds memory instead
+// of letting finished blocks pile up. Tasks report I/O failures as UncheckedIOException.
+final class OrderedBlocks {
+    interface Sink<R> {
+        void accept(R result) throws IOException;
+    }
+    
+    private OrderedBlocks() {}
+    
+    static <R> void run(int blocks, int parallelism, IntFunction<R> task, Sink<R> sink) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Deque<CompletableFuture<R>> inFlight = new ArrayDeque<>();
+        try {
+            for (int block = 0; block < blocks; block++) {
+                if (inFlight.size() >= parallelism * 2) {
+                    sink.accept(await(inFlight.poll()));
+                }
+                int index = block;
+                inFlight.add(CompletableFuture.supplyAsync(() -> task.apply(index), pool));
+            }
+            while (!inFlight.isEmpty()) {
+                sink.accept(await(inFlight.poll()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private static <R> R await(CompletableFuture<R> result) throws IOException {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+}
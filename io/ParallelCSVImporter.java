@@ -0,0 +1,221 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+public class ParallelCSVImporter {
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final long DEFAULT_PARALLEL_THRESHOLD = 4 * 1024 * 1024;
+    private static final int SCAN_WINDOW_SIZE = 64 * 1024 * 1024;
+    
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final long parallelThreshold;
+    
+    // One parsed record; value is null when the parser skipped the record or failed on it
+    public static class Row<T> {
+        private final ByteBuffer chunk;
+        private final int start;
+        private final int end;
+        private final T value;
+        private final String error;
+        
+        Row(ByteBuffer chunk, int start, int end, T value, String error) {
+            this.chunk = chunk;
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.error = error;
+        }
+        
+        // Decoded lazily, so only rows that are reported pay for the String
+        public String getLine() {
+            byte[] bytes = new byte[end - start];
+            chunk.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        
+        public T getValue() { return value; }
+        public boolean isFailed() { return error != null; }
+        public String getError() { return error; }
+    }
+    
+    public ParallelCSVImporter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, DEFAULT_PARALLEL_THRESHOLD);
+    }
+    
+    public ParallelCSVImporter(ForkJoinPool pool, int chunkSize, long parallelThreshold) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.parallelThreshold = parallelThreshold;
+    }
+    
+    // Parses every record after the header, returning rows in file order. Files smaller
+    // than the threshold are parsed as a single chunk on the calling thread.
+    public <T> List<Row<T>> parse(Path file, Function<CSVTokenizer, T> parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] boundaries = size < parallelThreshold
+                ? new long[] {0, size}
+                : chunkBoundaries(channel);
+            int chunkCount = boundaries.length - 1;
+            
+            // Each chunk's slot is written by exactly one task; the join publishes it
+            List<List<Row<T>>> results = new ArrayList<>(Collections.nCopies(chunkCount, null));
+            ParseTask<T> task = new ParseTask<>(channel, boundaries, 0, chunkCount, parser, results);
+            if (chunkCount == 1) {
+                task.compute();
+            } else {
+                pool.invoke(task);
+            }
+            
+            List<Row<T>> rows = new ArrayList<>();
+            for (List<Row<T>> chunkRows : results) {
+                rows.addAll(chunkRows);
+            }
+            return rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    // Where the boundary scan is within a record; mirrors how CSVTokenizer reads fields
+    private enum ScanState { FIELD_START, UNQUOTED, QUOTED, QUOTE_IN_QUOTED }
+    
+    // Chunk start offsets: the first chunk begins at the header, each later one just past a
+    // record-ending newline. The scan follows the tokenizer's quoting rules, so a quote only
+    // opens a quoted field as the field's first non-blank byte; a stray quote inside an
+    // unquoted field is plain data and cannot shift every later split into mid-record.
+    private long[] chunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        
+        ScanState state = ScanState.FIELD_START;
+        long nextTarget = chunkSize;
+        for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW_SIZE) {
+            long windowLength = Math.min(SCAN_WINDOW_SIZE, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+            for (int i = 0; i < windowLength; i++) {
+                byte b = window.get(i);
+                if (state == ScanState.QUOTED) {
+                    if (b == '"') {
+                        state = ScanState.QUOTE_IN_QUOTED;
+                    }
+                    continue;
+                }
+                if (state == ScanState.QUOTE_IN_QUOTED) {
+                    if (b == '"') {
+                        state = ScanState.QUOTED; // escaped "" inside the field
+                        continue;
+                    }
+                    state = ScanState.UNQUOTED; // closing quote; the rest reads as unquoted
+                }
+                if (state == ScanState.FIELD_START) {
+                    if (b == '"') {
+                        state = ScanState.QUOTED;
+                        continue;
+                    }
+                    if (b != ' ' && b != '\t') {
+                        state = ScanState.UNQUOTED;
+                    }
+                }
+                if (b == ',' || b == '\r') {
+                    state = ScanState.FIELD_START;
+                } else if (b == '\n') {
+                    state = ScanState.FIELD_START;
+                    if (windowStart + i + 1 >= nextTarget) {
+                        long boundary = windowStart + i + 1;
+                        boundaries.add(boundary);
+                        nextTarget = boundary + chunkSize;
+                    }
+                }
+            }
+        }
+        if (boundaries.get(boundaries.size() - 1) < size) {
+            boundaries.add(size);
+        }
+        
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+    
+    private static <T> List<Row<T>> parseChunk(FileChannel channel, long start, long end, boolean skipHeader,
+                                               Function<CSVTokenizer, T> parser) {
+        List<Row<T>> rows = new ArrayList<>();
+        if (end <= start) {
+            return rows;
+        }
+        
+        MappedByteBuffer chunk;
+        try {
+            chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        CSVTokenizer tokenizer = new CSVTokenizer(chunk.duplicate());
+        if (skipHeader) {
+            tokenizer.nextRecord();
+        }
+        while (tokenizer.nextRecord()) {
+            T value = null;
+            String error = null;
+            try {
+                value = parser.apply(tokenizer);
+            } catch (RuntimeException e) {
+                error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+            rows.add(new Row<>(chunk, tokenizer.recordStart(), tokenizer.recordEnd(), value, error));
+        }
+        return rows;
+    }
+    
+    // Fork-join task that splits the chunk range in halves until a single chunk remains
+    private static class ParseTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+        private final Function<CSVTokenizer, T> parser;
+        private final List<List<Row<T>>> results;
+        
+        ParseTask(FileChannel channel, long[] boundaries, int from, int to,
+                  Function<CSVTokenizer, T> parser, List<List<Row<T>>> results) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+            this.parser = parser;
+            this.results = results;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) {
+                    results.set(i, parseChunk(channel, boundaries[i], boundaries[i + 1], i == 0, parser));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParseTask<>(channel, boundaries, from, mid, parser, results),
+                      new ParseTask<>(channel, boundaries, mid, to, parser, results));
+        }
+    }
+}
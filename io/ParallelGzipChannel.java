@@ -0,0 +1,120 @@
+package edu.ccrm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+// Gzip-compresses everything written to it in fixed-size blocks on a thread pool.
+//
+// Each block becomes an independent gzip member and the members are written in order, so
+// the output is a plain multi-member .gz that GZIPInputStream (and gunzip) read back as one
+// stream. At most a bounded number of blocks are in flight, which caps memory use.
+public class ParallelGzipChannel implements WritableByteChannel {
+    private static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    
+    private final WritableByteChannel out;
+    private final ExecutorService pool;
+    private final int maxInFlight;
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private byte[] block;
+    private int blockLength;
+    private boolean open = true;
+    
+    public ParallelGzipChannel(WritableByteChannel out) {
+        this(out, ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE);
+    }
+    
+    public ParallelGzipChannel(WritableByteChannel out, ExecutorService pool, int blockSize) {
+        this.out = out;
+        this.pool = pool;
+        this.block = new byte[blockSize];
+        this.maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+    }
+    
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        int written = source.remaining();
+        while (source.hasRemaining()) {
+            int count = Math.min(source.remaining(), block.length - blockLength);
+            source.get(block, blockLength, count);
+            blockLength += count;
+            if (blockLength == block.length) {
+                submitBlock();
+            }
+        }
+        return written;
+    }
+    
+    private void submitBlock() throws IOException {
+        byte[] data = block;
+        int length = blockLength;
+        inFlight.add(pool.submit(() -> compress(data, length)));
+        block = new byte[data.length];
+        blockLength = 0;
+        
+        // Back-pressure: write finished members before queueing too many blocks
+        while (inFlight.size() >= maxInFlight) {
+            writeMember(inFlight.poll());
+        }
+    }
+    
+    private static byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(length / 3 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member, 64 * 1024)) {
+            gzip.write(data, 0, length);
+        }
+        return member.toByteArray();
+    }
+    
+    private void writeMember(Future<byte[]> pending) throws IOException {
+        byte[] member;
+        try {
+            member = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Block compression failed", e.getCause());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(member);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+    
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+    
+    // Compresses the final partial block and writes every outstanding member; does not close
+    // the underlying channel
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            if (blockLength > 0) {
+                submitBlock();
+            }
+            while (!inFlight.isEmpty()) {
+                writeMember(inFlight.poll());
+            }
+        } finally {
+            inFlight.forEach(pending -> pending.cancel(true));
+        }
+    }
+}
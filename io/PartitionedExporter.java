@@ -0,0 +1,226 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+// Splits the catalog into one CSV per department and semester, and the roster into one CSV per
+// department a student is enrolled in (students without enrollments go to "unassigned").
+//
+// Each store is read once. Every partition buffers its rows in memory and is only given a file
+// channel when its buffer fills or at the end; at most maxOpenFiles channels are open at any
+// time, the least recently written one being closed to make room. A manifest.csv listing each
+// partition's file, rows and bytes is written last, so a folder without one is incomplete.
+public class PartitionedExporter {
+    private static final String MANIFEST = "manifest.csv";
+    private static final int PARTITION_BUFFER_BYTES = 64 * 1024;
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final int maxOpenFiles;
+    
+    // One output file and what has been written to it
+    public static class Partition {
+        private final String kind;
+        private final String department;
+        private final Semester semester;
+        private final String fileName;
+        private final ByteCSVWriter buffer = new ByteCSVWriter(PARTITION_BUFFER_BYTES);
+        private boolean created;
+        private long rows;
+        private long bytes;
+        
+        Partition(String kind, String department, Semester semester, String fileName, String[] header) {
+            this.kind = kind;
+            this.department = department;
+            this.semester = semester;
+            this.fileName = fileName;
+            buffer.row(header);
+        }
+        
+        public String getKind() { return kind; }
+        public String getDepartment() { return department; }
+        public Semester getSemester() { return semester; }
+        public String getFileName() { return fileName; }
+        public long getRows() { return rows; }
+        public long getBytes() { return bytes; }
+    }
+    
+    public static class ExportResult {
+        private final Path folder;
+        private final List<Partition> partitions;
+        
+        ExportResult(Path folder, List<Partition> partitions) {
+            this.folder = folder;
+            this.partitions = partitions;
+        }
+        
+        public Path getFolder() { return folder; }
+        public List<Partition> getPartitions() { return partitions; }
+        public long getTotalBytes() { return partitions.stream().mapToLong(Partition::getBytes).sum(); }
+    }
+    
+    public PartitionedExporter(StudentService studentService, CourseService courseService, int maxOpenFiles) {
+        if (maxOpenFiles <= 0) {
+            throw new IllegalArgumentException("At least one open file is needed");
+        }
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.maxOpenFiles = maxOpenFiles;
+    }
+    
+    public ExportResult export(Path folder) throws IOException {
+        Files.createDirectories(folder);
+        List<Partition> written = new ArrayList<>();
+        
+        try (Partitions partitions = new Partitions(folder)) {
+            for (Course course : courseService.findAll()) {
+                String key = course.getDepartment() + '\u0000' + course.getSemester();
+                Partition partition = partitions.get(key, () -> new Partition("courses", course.getDepartment(),
+                    course.getSemester(), partitions.fileName("courses", course.getDepartment() + "_" + course.getSemester()),
+                    FileIOService.COURSE_HEADER));
+                FileIOService.encodeCourse(partition.buffer, course);
+                partitions.rowAdded(partition);
+            }
+            
+            Set<String> departments = new HashSet<>();
+            for (Student student : studentService.findAll()) {
+                departments.clear();
+                for (String code : student.getEnrolledCourses()) {
+                    Course course = courseService.findById(code);
+                    if (course != null) {
+                        departments.add(course.getDepartment());
+                    }
+                }
+                if (departments.isEmpty()) {
+                    departments.add(null);
+                }
+                for (String department : departments) {
+                    String key = "students\u0000" + department;
+                    Partition partition = partitions.get(key, () -> new Partition("students", department, null,
+                        partitions.fileName("students", department == null ? "unassigned" : department),
+                        FileIOService.STUDENT_HEADER));
+                    FileIOService.encodeStudent(partition.buffer, student);
+                    partitions.rowAdded(partition);
+                }
+            }
+            
+            partitions.flushAll();
+            written.addAll(partitions.byKey.values());
+        }
+        
+        writeManifest(folder, written);
+        return new ExportResult(folder, written);
+    }
+    
+    private static void writeManifest(Path folder, List<Partition> partitions) throws IOException {
+        ByteCSVWriter manifest = new ByteCSVWriter(8 * 1024);
+        manifest.row("File", "Kind", "Department", "Semester", "Rows", "Bytes");
+        for (Partition partition : partitions) {
+            manifest.field(partition.fileName)
+                .field(partition.kind)
+                .field(partition.department)
+                .field(partition.semester)
+                .field(partition.rows)
+                .field(partition.bytes)
+                .endRow();
+        }
+        
+        Path temp = folder.resolve(MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            manifest.drainTo(channel);
+        }
+        Files.move(temp, folder.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // The partitions of one export run and the bounded set of channels they write through
+    private final class Partitions implements Closeable {
+        private final Path folder;
+        private final Map<String, Partition> byKey = new LinkedHashMap<>();
+        private final Set<String> fileNames = new HashSet<>();
+        // Access-ordered, so the first entry is the least recently written partition
+        private final LinkedHashMap<Partition, FileChannel> open = new LinkedHashMap<>(16, 0.75f, true);
+        
+        Partitions(Path folder) {
+            this.folder = folder;
+        }
+        
+        Partition get(String key, Supplier<Partition> create) {
+            Partition partition = byKey.get(key);
+            if (partition == null) {
+                partition = create.get();
+                byKey.put(key, partition);
+            }
+            return partition;
+        }
+        
+        // Department names become file names, so unsafe characters are replaced and clashes numbered
+        String fileName(String kind, String label) {
+            String base = kind + "_" + label.replaceAll("[^A-Za-z0-9_-]", "_");
+            String name = base + ".csv";
+            for (int suffix = 2; !fileNames.add(name); suffix++) {
+                name = base + "_" + suffix + ".csv";
+            }
+            return name;
+        }
+        
+        void rowAdded(Partition partition) throws IOException {
+            partition.rows++;
+            if (partition.buffer.size() >= PARTITION_BUFFER_BYTES) {
+                flush(partition);
+            }
+        }
+        
+        void flushAll() throws IOException {
+            for (Partition partition : byKey.values()) {
+                if (partition.buffer.size() > 0) {
+                    flush(partition);
+                }
+            }
+        }
+        
+        private void flush(Partition partition) throws IOException {
+            FileChannel channel = open.get(partition);
+            if (channel == null) {
+                if (open.size() >= maxOpenFiles) {
+                    Iterator<FileChannel> eldest = open.values().iterator();
+                    eldest.next().close();
+                    eldest.remove();
+                }
+                // The first open truncates any earlier export; reopening after an eviction appends
+                channel = partition.created
+                    ? FileChannel.open(folder.resolve(partition.fileName), StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)
+                    : FileChannel.open(folder.resolve(partition.fileName), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                partition.created = true;
+                open.put(partition, channel);
+            }
+            partition.bytes += partition.buffer.size();
+            partition.buffer.drainTo(channel);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (FileChannel channel : open.values()) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            open.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
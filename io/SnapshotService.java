@@ -0,0 +1,417 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Binary snapshot of the whole dataset: students, courses, enrollments and grades.
+//
+// Layout: header (magic, version), then sections. Each section is a tag followed by
+// length-prefixed blocks and closed by a zero-length block, so it can be written to any
+// channel without seeking. Strings are dictionary-encoded once and referenced by varint;
+// enums are stored as ordinals.
+public class SnapshotService {
+    private static final int MAGIC = 0x4343524D; // "CCRM"
+    private static final int VERSION = 3; // 2 added lastUpdated timestamps, 3 creation dates
+    private static final int BUFFER_SIZE = 1 << 20;
+    
+    static final int SECTION_END = 0;
+    private static final int SECTION_STRINGS = 1;
+    private static final int SECTION_COURSES = 2;
+    private static final int SECTION_STUDENTS = 3;
+    
+    private static final byte NO_GRADE = -1;
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    
+    // Counts of what a restore loaded, per entity type
+    public static class RestoreResult {
+        private final ImportResult students;
+        private final ImportResult courses;
+        
+        RestoreResult(ImportResult students, ImportResult courses) {
+            this.students = students;
+            this.courses = courses;
+        }
+        
+        public ImportResult getStudents() { return students; }
+        public ImportResult getCourses() { return courses; }
+    }
+    
+    public SnapshotService(StudentService studentService, CourseService courseService) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+    }
+    
+    // Writes to a temporary file first so a crash never leaves a truncated snapshot behind
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    public RestoreResult restore(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+    
+    public void write(WritableByteChannel channel) throws IOException {
+        List<Course> courses = courseService.findAll();
+        List<Student> students = studentService.findAll();
+        
+        // Pass 1: build the string dictionary (reference 0 is reserved for null)
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Course course : courses) {
+            intern(dictionary, course.getCode());
+            intern(dictionary, course.getTitle());
+            intern(dictionary, course.getInstructor());
+            intern(dictionary, course.getDepartment());
+        }
+        for (Student student : students) {
+            intern(dictionary, student.getId());
+            intern(dictionary, student.getRegNo());
+            intern(dictionary, student.getFullName());
+            intern(dictionary, student.getEmail());
+        }
+        
+        BlockWriter out = new BlockWriter(channel);
+        ByteBuffer header = out.reserve(8);
+        header.putInt(MAGIC).putInt(VERSION);
+        
+        out.beginSection(SECTION_STRINGS);
+        for (String value : dictionary.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = out.reserve(5 + bytes.length);
+            putVarInt(buffer, bytes.length);
+            buffer.put(bytes);
+        }
+        out.endSection();
+        
+        out.beginSection(SECTION_COURSES);
+        for (Course course : courses) {
+            ByteBuffer buffer = out.reserve(4 * 5 + 7 + 16);
+            putVarInt(buffer, ref(dictionary, course.getCode()));
+            putVarInt(buffer, ref(dictionary, course.getTitle()));
+            buffer.putInt(course.getCredits());
+            putVarInt(buffer, ref(dictionary, course.getInstructor()));
+            buffer.put((byte) course.getSemester().ordinal());
+            putVarInt(buffer, ref(dictionary, course.getDepartment()));
+            buffer.put((byte) course.getStatus().ordinal());
+            buffer.putLong(toEpochNanos(course.getLastUpdated()));
+            buffer.putLong(toEpochNanos(course.getCreatedDate()));
+        }
+        out.endSection();
+        
+        out.beginSection(SECTION_STUDENTS);
+        for (Student student : students) {
+            Set<String> enrolled = student.getEnrolledCourses();
+            Map<String, Grade> grades = student.getCourseGrades();
+            ByteBuffer buffer = out.reserve(5 * 5 + 1 + 16 + enrolled.size() * 6);
+            putVarInt(buffer, ref(dictionary, student.getId()));
+            putVarInt(buffer, ref(dictionary, student.getRegNo()));
+            putVarInt(buffer, ref(dictionary, student.getFullName()));
+            putVarInt(buffer, ref(dictionary, student.getEmail()));
+            buffer.put((byte) student.getStatus().ordinal());
+            buffer.putLong(toEpochNanos(student.getLastUpdated()));
+            buffer.putLong(toEpochNanos(student.getCreatedDate()));
+            
+            // Only enrollments in courses that are part of the snapshot can be restored
+            int count = 0;
+            for (String code : enrolled) {
+                if (dictionary.containsKey(code)) {
+                    count++;
+                }
+            }
+            putVarInt(buffer, count);
+            for (String code : enrolled) {
+                Integer courseRef = dictionary.get(code);
+                if (courseRef != null) {
+                    Grade grade = grades.get(code);
+                    putVarInt(buffer, courseRef);
+                    buffer.put(grade == null ? NO_GRADE : (byte) grade.ordinal());
+                }
+            }
+        }
+        out.endSection();
+        
+        out.beginSection(SECTION_END);
+        out.flush();
+    }
+    
+    // Restores into empty services; enrollments and grades are applied before the bulk load
+    // so the services index every entity with its final state
+    public RestoreResult read(ReadableByteChannel channel) throws IOException {
+        if (studentService.count() > 0 || courseService.count() > 0) {
+            throw new IllegalStateException("Snapshots can only be restored into empty services");
+        }
+        
+        BlockReader in = new BlockReader(channel);
+        ByteBuffer header = in.readFully(8);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a CCRM snapshot");
+        }
+        int version = header.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        
+        Semester[] semesters = Semester.values();
+        CourseStatus[] courseStatuses = CourseStatus.values();
+        StudentStatus[] studentStatuses = StudentStatus.values();
+        Grade[] gradeValues = Grade.values();
+        
+        List<String> strings = new ArrayList<>();
+        strings.add(null);
+        Map<String, Course> coursesByCode = new LinkedHashMap<>();
+        Map<String, LocalDateTime> courseTimestamps = new HashMap<>();
+        List<Student> students = new ArrayList<>();
+        byte[] scratch = new byte[256];
+        
+        int section;
+        while ((section = in.nextSection()) != SECTION_END) {
+            ByteBuffer block;
+            while ((block = in.nextBlock()) != null) {
+                while (block.hasRemaining()) {
+                    switch (section) {
+                        case SECTION_STRINGS -> {
+                            int length = getVarInt(block);
+                            if (length > scratch.length) {
+                                scratch = new byte[Math.max(length, scratch.length * 2)];
+                            }
+                            block.get(scratch, 0, length);
+                            strings.add(new String(scratch, 0, length, StandardCharsets.UTF_8));
+                        }
+                        case SECTION_COURSES -> {
+                            String code = strings.get(getVarInt(block));
+                            String title = strings.get(getVarInt(block));
+                            int credits = block.getInt();
+                            String instructor = strings.get(getVarInt(block));
+                            Semester semester = semesters[block.get()];
+                            String department = strings.get(getVarInt(block));
+                            CourseStatus status = courseStatuses[block.get()];
+                            LocalDateTime lastUpdated = version >= 2 ? fromEpochNanos(block.getLong()) : null;
+                            LocalDateTime createdDate = version >= 3 ? fromEpochNanos(block.getLong()) : null;
+                            
+                            Course course = new Course.Builder(code, title, credits)
+                                .instructor(instructor)
+                                .semester(semester)
+                                .department(department)
+                                .createdDate(createdDate)
+                                .build();
+                            course.setStatus(status);
+                            if (lastUpdated != null) {
+                                courseTimestamps.put(code, lastUpdated);
+                            }
+                            coursesByCode.put(code, course);
+                        }
+                        case SECTION_STUDENTS -> {
+                            Student student = new Student(strings.get(getVarInt(block)),
+                                strings.get(getVarInt(block)), strings.get(getVarInt(block)),
+                                strings.get(getVarInt(block)));
+                            student.setStatus(studentStatuses[block.get()]);
+                            LocalDateTime lastUpdated = version >= 2 ? fromEpochNanos(block.getLong()) : null;
+                            if (version >= 3) {
+                                student.setCreatedDate(fromEpochNanos(block.getLong()));
+                            }
+                            
+                            int enrollments = getVarInt(block);
+                            for (int i = 0; i < enrollments; i++) {
+                                String code = strings.get(getVarInt(block));
+                                byte grade = block.get();
+                                Course course = coursesByCode.get(code);
+                                if (course != null) {
+                                    student.enrollInCourse(code);
+                                    course.enrollStudent(student.getId());
+                                    if (grade != NO_GRADE) {
+                                        student.recordGrade(code, gradeValues[grade]);
+                                    }
+                                }
+                            }
+                            if (lastUpdated != null) {
+                                student.setLastUpdated(lastUpdated);
+                            }
+                            students.add(student);
+                        }
+                        default -> block.position(block.limit()); // unknown section from a newer writer
+                    }
+                }
+            }
+        }
+        
+        // Enrolling students above touched the courses; put their saved timestamps back
+        if (version >= 2) {
+            for (Map.Entry<String, LocalDateTime> entry : courseTimestamps.entrySet()) {
+                coursesByCode.get(entry.getKey()).setLastUpdated(entry.getValue());
+            }
+        }
+        
+        ImportResult courseResult = courseService.addAll(new ArrayList<>(coursesByCode.values()));
+        ImportResult studentResult = studentService.addAll(students);
+        return new RestoreResult(studentResult, courseResult);
+    }
+    
+    private static void intern(Map<String, Integer> dictionary, String value) {
+        if (value != null) {
+            dictionary.putIfAbsent(value, dictionary.size() + 1);
+        }
+    }
+    
+    private static int ref(Map<String, Integer> dictionary, String value) {
+        return value == null ? 0 : dictionary.get(value);
+    }
+    
+    // Timestamps are stored as nanoseconds since the epoch, read as UTC wall-clock fields
+    private static long toEpochNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+    
+    private static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+            (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+    
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+    
+    // Buffers section payload in a large direct buffer and emits it as length-prefixed blocks.
+    // Callers reserve room for a whole item, so items never straddle two blocks.
+    static class BlockWriter {
+        private final WritableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private boolean inSection;
+        
+        BlockWriter(WritableByteChannel channel) {
+            this.channel = channel;
+            buffer.clear();
+        }
+        
+        void beginSection(int tag) throws IOException {
+            reserve(4).putInt(tag);
+            if (tag != SECTION_END) {
+                startBlock();
+                inSection = true;
+            }
+        }
+        
+        // The section is closed before reserving the terminator, so a full buffer is drained
+        // rather than given a fresh block header that would read as the end marker
+        void endSection() throws IOException {
+            finishBlock();
+            inSection = false;
+            reserve(4).putInt(0);
+        }
+        
+        ByteBuffer reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                if (inSection) {
+                    finishBlock();
+                }
+                drain();
+                if (buffer.capacity() < bytes + 4) {
+                    buffer = ByteBuffer.allocateDirect(bytes + 4);
+                }
+                if (inSection) {
+                    startBlock();
+                }
+            }
+            return buffer;
+        }
+        
+        private int blockStart;
+        
+        private void startBlock() throws IOException {
+            if (buffer.remaining() < 5) {
+                drain();
+            }
+            blockStart = buffer.position();
+            buffer.putInt(0); // patched with the payload length in finishBlock
+        }
+        
+        private void finishBlock() {
+            int length = buffer.position() - blockStart - 4;
+            if (length == 0) {
+                buffer.position(blockStart); // never emit an empty block; it would end the section
+            } else {
+                buffer.putInt(blockStart, length);
+            }
+        }
+        
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        void flush() throws IOException {
+            drain();
+        }
+    }
+    
+    // Reads sections back one block at a time into a reusable direct buffer
+    static class BlockReader {
+        private final ReadableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        
+        BlockReader(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+        
+        int nextSection() throws IOException {
+            return readFully(4).getInt();
+        }
+        
+        // The next block of the current section, or null at the section's end marker
+        ByteBuffer nextBlock() throws IOException {
+            int length = readFully(4).getInt();
+            return length == 0 ? null : readFully(length);
+        }
+        
+        ByteBuffer readFully(int length) throws IOException {
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocateDirect(length);
+            }
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of snapshot");
+                }
+            }
+            return buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+// Renders official transcripts for many students at once, either one file per student or
+// all of them concatenated into one channel in list order.
+//
+// Students are split into blocks rendered on a dedicated pool (see OrderedBlocks), so the
+// concatenated output keeps list order. Each worker thread reuses one text buffer, encoder
+// and byte buffer for every transcript it renders.
+public class TranscriptExporter {
+    private static final int BLOCK_SIZE = 64;
+    
+    private final StudentService.TranscriptService transcripts;
+    private final int parallelism;
+    
+    private static final class Buffers {
+        final StringBuilder text = new StringBuilder(1024);
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+        
+        // Appends the encoded text to bytes, growing it when a block outgrows it
+        void encodeText() {
+            CharBuffer chars = CharBuffer.wrap(text);
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, true);
+                if (result.isOverflow()) {
+                    ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2);
+                    bytes.flip();
+                    bytes = larger.put(bytes);
+                } else {
+                    break;
+                }
+            }
+            encoder.flush(bytes);
+            text.setLength(0);
+        }
+    }
+    
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+    
+    public TranscriptExporter(StudentService.TranscriptService transcripts, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.transcripts = transcripts;
+        this.parallelism = parallelism;
+    }
+    
+    // Writes transcript_<id>.txt per student into the directory; returns the number written
+    public long writeFiles(List<Student> students, Path directory, AtomicLong progress) throws IOException {
+        Files.createDirectories(directory);
+        String generatedAt = LocalDateTime.now().toString();
+        run(students.size(), block -> {
+            Buffers buffer = buffers.get();
+            for (Student student : block(students, block)) {
+                buffer.bytes.clear();
+                transcripts.appendTranscript(student, generatedAt, buffer.text);
+                buffer.encodeText();
+                buffer.bytes.flip();
+                Path file = directory.resolve("transcript_" + fileNameOf(student.getId()) + ".txt");
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (buffer.bytes.hasRemaining()) {
+                        channel.write(buffer.bytes);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                progress.incrementAndGet();
+            }
+            return null;
+        }, bytes -> {});
+        return students.size();
+    }
+    
+    // Writes every transcript to one channel in list order; returns the number written
+    public long writeConcatenated(List<Student> students, WritableByteChannel out, AtomicLong progress)
+            throws IOException {
+        String generatedAt = LocalDateTime.now().toString();
+        run(students.size(), block -> {
+            Buffers buffer = buffers.get();
+            buffer.bytes.clear();
+            for (Student student : block(students, block)) {
+                transcripts.appendTranscript(student, generatedAt, buffer.text);
+                buffer.encodeText();
+                progress.incrementAndGet();
+            }
+            // The worker's buffer is reused for its next block, so hand the writer a copy
+            return Arrays.copyOf(buffer.bytes.array(), buffer.bytes.position());
+        }, bytes -> {
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            while (data.hasRemaining()) {
+                out.write(data);
+            }
+        });
+        return students.size();
+    }
+    
+    private void run(int count, IntFunction<byte[]> render, OrderedBlocks.Sink<byte[]> writer) throws IOException {
+        OrderedBlocks.run((count + BLOCK_SIZE - 1) / BLOCK_SIZE, parallelism, render, writer);
+    }
+    
+    private static List<Student> block(List<Student> students, int block) {
+        int from = block * BLOCK_SIZE;
+        return students.subList(from, Math.min(from + BLOCK_SIZE, students.size()));
+    }
+    
+    // Keeps IDs that are not safe in file names from escaping the output directory
+    private static String fileNameOf(String id) {
+        return id.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
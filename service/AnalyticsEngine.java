@@ -0,0 +1,164 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+// Whole-cohort reductions run on a dedicated ForkJoinPool.
+//
+// Each run copies the store into an array and reduces it over a fixed split tree. Ranges are
+// halved down to shards of at most SHARD_SIZE elements, and partial results are combined left
+// to right. The tree depends only on the element count, so every parallelism, including 1 on
+// the caller's thread, combines the same partials in the same order. Results are therefore
+// identical, floating-point sums included.
+public class AnalyticsEngine implements AutoCloseable {
+    private static final int SHARD_SIZE = 4096;
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final int parallelism;
+    // Null when running sequentially on the caller's thread
+    private final ForkJoinPool pool;
+    
+    public AnalyticsEngine(StudentService studentService, CourseService courseService, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.parallelism = parallelism;
+        this.pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+    }
+    
+    // Partial results are built with accumulator and merged with combiner, which may return
+    // either argument after folding the other into it, as with a mutable Collector
+    public <T, A> A reduce(Collection<? extends T> source, Supplier<A> identity,
+                           BiConsumer<A, ? super T> accumulator, BinaryOperator<A> combiner) {
+        Object[] items = source.toArray();
+        Shard<T, A> root = new Shard<>(items, 0, items.length, identity, accumulator, combiner);
+        return pool == null ? root.compute() : pool.invoke(root);
+    }
+    
+    private final class Shard<T, A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+        
+        private final Object[] items;
+        private final int from;
+        private final int to;
+        private final Supplier<A> identity;
+        private final BiConsumer<A, ? super T> accumulator;
+        private final BinaryOperator<A> combiner;
+        
+        Shard(Object[] items, int from, int to, Supplier<A> identity,
+              BiConsumer<A, ? super T> accumulator, BinaryOperator<A> combiner) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.identity = identity;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        protected A compute() {
+            if (to - from <= SHARD_SIZE) {
+                A partial = identity.get();
+                for (int i = from; i < to; i++) {
+                    accumulator.accept(partial, (T) items[i]);
+                }
+                return partial;
+            }
+            
+            int mid = (from + to) >>> 1;
+            Shard<T, A> left = new Shard<>(items, from, mid, identity, accumulator, combiner);
+            Shard<T, A> right = new Shard<>(items, mid, to, identity, accumulator, combiner);
+            if (pool == null) {
+                return combiner.apply(left.compute(), right.compute());
+            }
+            left.fork();
+            A rightResult = right.compute();
+            return combiner.apply(left.join(), rightResult);
+        }
+    }
+    
+    public Map<String, Long> courseCountByDepartment() {
+        return reduce(courseService.findAll(), HashMap::new,
+            (counts, course) -> counts.merge(course.getDepartment(), 1L, Long::sum),
+            AnalyticsEngine::mergeCounts);
+    }
+    
+    // Same figures as StudentService.calculateGPAStatistics, recomputed from every student
+    // instead of read from the running aggregates
+    public Student.GPAStatistics gpaStatistics() {
+        GPATotals totals = reduce(studentService.findByStatus(StudentStatus.ACTIVE), GPATotals::new,
+            GPATotals::add, GPATotals::merge);
+        double average = totals.count == 0 ? 0.0 : totals.gpaSum / totals.count;
+        return new Student.GPAStatistics(average, totals.count, totals.distribution);
+    }
+    
+    // Credits of every enrollment, summed by the department offering the course
+    public Map<String, Long> enrolledCreditsByDepartment() {
+        return reduce(studentService.findAll(), HashMap::new, (credits, student) -> {
+            for (String code : student.getEnrolledCourses()) {
+                Course course = courseService.findById(code);
+                if (course != null) {
+                    credits.merge(course.getDepartment(), (long) course.getCredits(), Long::sum);
+                }
+            }
+        }, AnalyticsEngine::mergeCounts);
+    }
+    
+    // Parallel form of StudentService.gpaReport; per-shard reports merge into one
+    public GPAReport gpaReport(int k) {
+        return reduce(studentService.findByStatus(StudentStatus.ACTIVE), () -> new GPAReport(k),
+            (report, student) -> {
+                if (student.getGradedCourseCount() > 0) {
+                    report.add(student);
+                }
+            }, GPAReport::merge);
+    }
+    
+    private static Map<String, Long> mergeCounts(Map<String, Long> left, Map<String, Long> right) {
+        right.forEach((key, count) -> left.merge(key, count, Long::sum));
+        return left;
+    }
+    
+    private static class GPATotals {
+        private int count;
+        private double gpaSum;
+        private final long[] distribution = new long[Student.GPAStatistics.bandCount()];
+        
+        void add(Student student) {
+            double gpa = student.calculateGPA();
+            count++;
+            gpaSum += gpa;
+            distribution[Student.GPAStatistics.bandOf(gpa)]++;
+        }
+        
+        GPATotals merge(GPATotals other) {
+            count += other.count;
+            gpaSum += other.gpaSum;
+            for (int band = 0; band < distribution.length; band++) {
+                distribution[band] += other.distribution[band];
+            }
+            return this;
+        }
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
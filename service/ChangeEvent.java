@@ -0,0 +1,97 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+// One mutation as published on a ChangeFeed. Events are immutable; fields that do not apply
+// to the event's type are null.
+public final class ChangeEvent {
+    public enum Type {
+        STUDENT_SAVED(true),            // studentId, name, email, studentStatus
+        STUDENT_UPDATED(true),          // studentId, name, email
+        STUDENT_STATUS_CHANGED(true),   // studentId, studentStatus
+        STUDENT_DELETED(true),          // studentId
+        ENROLLED(true),                 // studentId, courseCode
+        UNENROLLED(true),               // studentId, courseCode
+        GRADE_RECORDED(true),           // studentId, courseCode, grade
+        COURSE_SAVED(false),            // courseCode, name (title), instructor, semester, courseStatus
+        COURSE_UPDATED(false),          // courseCode, name (title), instructor
+        COURSE_SEMESTER_CHANGED(false), // courseCode, semester
+        COURSE_STATUS_CHANGED(false),   // courseCode, courseStatus
+        COURSE_DELETED(false);          // courseCode
+        
+        private final boolean studentEvent;
+        
+        Type(boolean studentEvent) {
+            this.studentEvent = studentEvent;
+        }
+        
+        // Enrollment and grade events count as student events
+        public boolean isStudentEvent() { return studentEvent; }
+    }
+    
+    private final long sequence;
+    private final Type type;
+    private final String studentId;
+    private final String courseCode;
+    private final String name;
+    private final String email;
+    private final String instructor;
+    private final Grade grade;
+    private final StudentStatus studentStatus;
+    private final CourseStatus courseStatus;
+    private final Semester semester;
+    
+    ChangeEvent(long sequence, Type type, String studentId, String courseCode, String name, String email,
+                String instructor, Grade grade, StudentStatus studentStatus, CourseStatus courseStatus,
+                Semester semester) {
+        this.sequence = sequence;
+        this.type = type;
+        this.studentId = studentId;
+        this.courseCode = courseCode;
+        this.name = name;
+        this.email = email;
+        this.instructor = instructor;
+        this.grade = grade;
+        this.studentStatus = studentStatus;
+        this.courseStatus = courseStatus;
+        this.semester = semester;
+    }
+    
+    // Position in the feed; consecutive events have consecutive sequences
+    public long getSequence() { return sequence; }
+    public Type getType() { return type; }
+    public String getStudentId() { return studentId; }
+    public String getCourseCode() { return courseCode; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public String getInstructor() { return instructor; }
+    public Grade getGrade() { return grade; }
+    public Semester getSemester() { return semester; }
+    public StudentStatus getStudentStatus() { return studentStatus; }
+    public CourseStatus getCourseStatus() { return courseStatus; }
+    
+    public boolean isStudentEvent() {
+        return type.isStudentEvent();
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("#").append(sequence).append(' ').append(type);
+        append(text, "student", studentId);
+        append(text, "course", courseCode);
+        append(text, "name", name);
+        append(text, "email", email);
+        append(text, "instructor", instructor);
+        append(text, "grade", grade);
+        append(text, "status", studentStatus);
+        append(text, "status", courseStatus);
+        append(text, "semester", semester);
+        return text.toString();
+    }
+    
+    private static void append(StringBuilder text, String label, Object value) {
+        if (value != null) {
+            text.append(' ').append(label).append('=').append(value);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Ring buffer of ChangeEvents, fed by registering it as a MutationLog on StudentService and
+// CourseService, and read by any number of independent subscriptions.
+//
+// Publishing takes no lock. A mutating thread claims the next sequence number, waits only if
+// a BLOCK subscriber is a full ring behind, and stores the event in its slot; events carry
+// their sequence, so a reader can tell an event it has not reached yet from one that has
+// already been overwritten. Each subscription keeps its own cursor and consumes in batches:
+// - BLOCK subscriptions hold producers back when they fall behind. That is backpressure on
+//   the request path, so their handlers must keep up and must not call back into the services.
+//   Services publish while still holding their registry lock or the entity's stripe, so a
+//   stalled BLOCK subscriber stalls every writer waiting on those locks too, not just the
+//   one publishing.
+// - OVERWRITE subscriptions never slow producers. When lapped, they skip to the oldest event
+//   still in the ring and add the skipped events to getLostCount(), e.g. to rebuild a view.
+// A subscription sees the events published after subscribe() returns.
+public class ChangeFeed implements MutationLog, AutoCloseable {
+    public enum OverflowPolicy { BLOCK, OVERWRITE }
+    
+    // Receives each non-empty batch on the subscription's own thread
+    public interface BatchHandler {
+        void onBatch(List<ChangeEvent> events);
+    }
+    
+    private final int mask;
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger workerCount = new AtomicInteger();
+    
+    public ChangeFeed(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+    
+    public final class Subscription implements AutoCloseable {
+        private final OverflowPolicy policy;
+        // Next sequence to read; only advanced by the consuming thread
+        private volatile long cursor;
+        private final AtomicLong lost = new AtomicLong();
+        private volatile boolean closed;
+        private Thread worker;
+        
+        private Subscription(OverflowPolicy policy) {
+            this.policy = policy;
+        }
+        
+        // Hands up to maxEvents available events to the handler in sequence order and returns
+        // how many it took; never waits for events that have not been published yet
+        public synchronized int poll(int maxEvents, Consumer<? super ChangeEvent> handler) {
+            long next = cursor;
+            int taken = 0;
+            try {
+                while (taken < maxEvents && !closed) {
+                    ChangeEvent event = slots.get((int) next & mask);
+                    if (event == null || event.getSequence() < next) {
+                        break;
+                    }
+                    if (event.getSequence() > next) {
+                        // Lapped: everything older than one ring behind the producers is gone
+                        long oldest = nextSequence.get() - slots.length();
+                        lost.addAndGet(oldest - next);
+                        next = oldest;
+                        continue;
+                    }
+                    handler.accept(event);
+                    next++;
+                    taken++;
+                }
+            } finally {
+                cursor = next;
+            }
+            return taken;
+        }
+        
+        public OverflowPolicy getPolicy() { return policy; }
+        public long getLostCount() { return lost.get(); }
+        
+        // Events published but not yet consumed
+        public long getLag() {
+            return Math.max(0, nextSequence.get() - cursor);
+        }
+        
+        // Stops delivery and, for a BLOCK subscription, releases any producer it holds back
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            if (worker != null && worker != Thread.currentThread()) {
+                LockSupport.unpark(worker);
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        
+        private void runWorker(int batchSize, BatchHandler handler) {
+            List<ChangeEvent> batch = new ArrayList<>(batchSize);
+            List<ChangeEvent> view = Collections.unmodifiableList(batch);
+            int idleRounds = 0;
+            while (!closed) {
+                batch.clear();
+                if (poll(batchSize, batch::add) == 0) {
+                    idle(idleRounds++);
+                    continue;
+                }
+                idleRounds = 0;
+                try {
+                    handler.onBatch(view);
+                } catch (RuntimeException e) {
+                    System.err.println("Change feed handler failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    // A subscription consumed by calling poll()
+    public Subscription subscribe(OverflowPolicy policy) {
+        // Registered at cursor 0, which holds back every producer that already sees it, and
+        // only then moved to the head: a producer that missed the registration claimed its
+        // sequence before the head was read, so it cannot overwrite anything after it
+        Subscription subscription = new Subscription(policy);
+        subscriptions.add(subscription);
+        subscription.cursor = nextSequence.get();
+        return subscription;
+    }
+    
+    // A subscription drained by its own daemon thread, which hands the handler batches of up
+    // to batchSize events; close the subscription to stop the thread
+    public Subscription subscribe(OverflowPolicy policy, int batchSize, BatchHandler handler) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        Subscription subscription = subscribe(policy);
+        subscription.worker = new Thread(() -> subscription.runWorker(batchSize, handler),
+            "ccrm-change-feed-" + workerCount.incrementAndGet());
+        subscription.worker.setDaemon(true);
+        subscription.worker.start();
+        return subscription;
+    }
+    
+    // Sequences claimed so far, including events whose producers are still storing them
+    public long getPublishedCount() {
+        return nextSequence.get();
+    }
+    
+    public int getCapacity() {
+        return slots.length();
+    }
+    
+    @Override
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+    
+    // MutationLog callbacks, each published as one event
+    
+    @Override
+    public void studentSaved(Student student) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.STUDENT_SAVED, student.getId(), null,
+            student.getFullName(), student.getEmail(), null, null, student.getStatus(), null, null));
+    }
+    
+    @Override
+    public void studentUpdated(String studentId, String fullName, String email) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.STUDENT_UPDATED, studentId, null,
+            fullName, email, null, null, null, null, null));
+    }
+    
+    @Override
+    public void studentStatusChanged(String studentId, StudentStatus status) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.STUDENT_STATUS_CHANGED, studentId, null,
+            null, null, null, null, status, null, null));
+    }
+    
+    @Override
+    public void studentDeleted(String studentId) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.STUDENT_DELETED, studentId, null,
+            null, null, null, null, null, null, null));
+    }
+    
+    @Override
+    public void enrolled(String studentId, String courseCode) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.ENROLLED, studentId, courseCode,
+            null, null, null, null, null, null, null));
+    }
+    
+    @Override
+    public void unenrolled(String studentId, String courseCode) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.UNENROLLED, studentId, courseCode,
+            null, null, null, null, null, null, null));
+    }
+    
+    @Override
+    public void gradeRecorded(String studentId, String courseCode, Grade grade) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.GRADE_RECORDED, studentId, courseCode,
+            null, null, null, grade, null, null, null));
+    }
+    
+    @Override
+    public void courseSaved(Course course) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.COURSE_SAVED, null, course.getCode(),
+            course.getTitle(), null, course.getInstructor(), null, null, course.getStatus(), course.getSemester()));
+    }
+    
+    @Override
+    public void courseUpdated(String courseCode, String title, String instructor) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.COURSE_UPDATED, null, courseCode,
+            title, null, instructor, null, null, null, null));
+    }
+    
+    @Override
+    public void courseSemesterChanged(String courseCode, Semester semester) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.COURSE_SEMESTER_CHANGED, null, courseCode,
+            null, null, null, null, null, null, semester));
+    }
+    
+    @Override
+    public void courseStatusChanged(String courseCode, CourseStatus status) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.COURSE_STATUS_CHANGED, null, courseCode,
+            null, null, null, null, null, status, null));
+    }
+    
+    @Override
+    public void courseDeleted(String courseCode) {
+        long sequence = claim();
+        publish(new ChangeEvent(sequence, ChangeEvent.Type.COURSE_DELETED, null, courseCode,
+            null, null, null, null, null, null, null));
+    }
+    
+    // Claims the next sequence, waiting while its slot still holds an event a BLOCK
+    // subscription has not consumed. Subscriptions are few, so their cursors are simply
+    // scanned on each claim instead of cached.
+    private long claim() {
+        long sequence = nextSequence.getAndIncrement();
+        long wrapPoint = sequence - slots.length();
+        if (wrapPoint >= 0) {
+            int idleRounds = 0;
+            while (lowestBlockingCursor() <= wrapPoint) {
+                idle(idleRounds++);
+            }
+        }
+        return sequence;
+    }
+    
+    private long lowestBlockingCursor() {
+        long lowest = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.policy == OverflowPolicy.BLOCK) {
+                lowest = Math.min(lowest, subscription.cursor);
+            }
+        }
+        return lowest;
+    }
+    
+    // Producers that claimed sequences a ring apart share a slot; the later one waits for the
+    // earlier one's event, so a slot's sequence only ever grows
+    private void publish(ChangeEvent event) {
+        int slot = (int) event.getSequence() & mask;
+        long previousLap = event.getSequence() - slots.length();
+        if (previousLap >= 0) {
+            int idleRounds = 0;
+            ChangeEvent previous;
+            while ((previous = slots.get(slot)) == null || previous.getSequence() < previousLap) {
+                idle(idleRounds++);
+            }
+        }
+        slots.set(slot, event);
+    }
+    
+    // Spin briefly, then yield, then park, so an idle waiter costs little CPU
+    private static void idle(int round) {
+        if (round < 64) {
+            Thread.onSpinWait();
+        } else if (round < 128) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(1_000_000L, 1_000L << Math.min(round - 128, 10)));
+        }
+    }
+}
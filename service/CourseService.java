@@ -1,60 +1,208 @@
 package edu.ccrm.service;
 
+import edu.ccrm.config.AppConfig;
 import edu.ccrm.domain.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.io.IOException;
 import java.nio.file.Path;
 
-public class CourseService implements Persistable<Course>, Searchable<Course> {
-    private final Map<String, Course> courses = new HashMap<>();
+public class CourseService implements Persistable<Course>, Searchable<Course>, Queryable<Course> {
+    // Keyed by interned CourseCode: hashes are precomputed and equality is an identity check
+    private final Map<CourseCode, Course> courses = new ConcurrentHashMap<>();
     
-    public Course addCourse(String code, String title, int credits, String instructor, 
-                           Semester semester, String department) {
-        if (courses.containsKey(code)) {
-            throw new IllegalArgumentException("Course with code " + code + " already exists");
+    // Secondary indexes, kept in sync on every mutation so lookups cost the size of the result
+    private final Map<String, Set<Course>> coursesByInstructor = new ConcurrentHashMap<>();
+    private final Map<String, Set<Course>> coursesByDepartment = new ConcurrentHashMap<>();
+    private final Map<String, Set<Course>> coursesByCodePrefix = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Course> coursesByCode = new ConcurrentSkipListMap<>();
+    
+    // Sorted by credits for range queries; emptied buckets are kept (compute is not atomic on
+    // a skip list) and there are only a handful of distinct credit values
+    private final NavigableMap<Integer, Set<Course>> coursesByCredits = new ConcurrentSkipListMap<>();
+    private final TextIndex<Course> titleIndex = new TextIndex<>(Course::getTitle, Course::getCode);
+    private final Map<Semester, Set<Course>> coursesBySemester = new EnumMap<>(Semester.class);
+    
+    // Registry changes (add/save/delete) are serialized; readers never block
+    private final Object registryLock = new Object();
+    
+    private final MutationLogs mutationLogs = new MutationLogs();
+    
+    // Bumped after every write; cached reports computed at an older version are recomputed
+    private final AtomicLong version = new AtomicLong();
+    private final ReportCache reportCache = new ReportCache(AppConfig.getInstance().getReportCacheSize());
+    
+    private final Course.ChangeListener indexUpdater = new Course.ChangeListener() {
+        @Override
+        public void onTitleChanged(Course course, String oldTitle) {
+            titleIndex.update(course, oldTitle);
+            version.incrementAndGet();
+        }
+        
+        @Override
+        public void onInstructorChanged(Course course, String oldInstructor) {
+            removeFromIndex(coursesByInstructor, normalize(oldInstructor), course);
+            addToIndex(coursesByInstructor, normalize(course.getInstructor()), course);
+            version.incrementAndGet();
+        }
+        
+        @Override
+        public void onSemesterChanged(Course course, Semester oldSemester) {
+            coursesBySemester.get(oldSemester).remove(course);
+            coursesBySemester.get(course.getSemester()).add(course);
+            version.incrementAndGet();
+            mutationLogs.publish(log -> log.courseSemesterChanged(course.getCode(), course.getSemester()));
+        }
+        
+        @Override
+        public void onStatusChanged(Course course, CourseStatus oldStatus) {
+            version.incrementAndGet();
+            mutationLogs.publish(log -> log.courseStatusChanged(course.getCode(), course.getStatus()));
+        }
+    };
+    
+    {
+        // Pre-populated so the EnumMap itself is never structurally modified after construction
+        for (Semester semester : Semester.values()) {
+            coursesBySemester.put(semester, ConcurrentHashMap.newKeySet());
         }
+    }
+    
+    // Queryable fields of a course
+    public static final class Fields {
+        public static final Field<Course, String> CODE = Field.of("code", Course::getCode);
+        public static final Field<Course, String> CODE_PREFIX = Field.of("codePrefix", c -> c.getCourseCode().getDepartment());
+        public static final Field<Course, String> TITLE = Field.text("title", Course::getTitle);
+        public static final Field<Course, Integer> CREDITS = Field.of("credits", Course::getCredits);
+        public static final Field<Course, String> INSTRUCTOR = Field.text("instructor", Course::getInstructor);
+        public static final Field<Course, Semester> SEMESTER = Field.of("semester", Course::getSemester);
+        public static final Field<Course, String> DEPARTMENT = Field.text("department", Course::getDepartment);
+        public static final Field<Course, CourseStatus> STATUS = Field.of("status", Course::getStatus);
         
+        private Fields() {}
+    }
+    
+    private final QueryPlanner<Course> planner = new QueryPlanner<Course>("courses", this::stream, this::count)
+        .keyIndex("courses", Fields.CODE, code -> {
+            Course course = findById(code);
+            return course == null ? List.of() : List.of(course);
+        })
+        .keyIndex("coursesByCodePrefix", Fields.CODE_PREFIX, prefix -> bucket(coursesByCodePrefix, prefix))
+        .keyIndex("coursesByInstructor", Fields.INSTRUCTOR, instructor -> bucket(coursesByInstructor, instructor))
+        .keyIndex("coursesByDepartment", Fields.DEPARTMENT, department -> bucket(coursesByDepartment, department))
+        .keyIndex("coursesBySemester", Fields.SEMESTER, coursesBySemester::get)
+        .sortedIndex("coursesByCredits", Fields.CREDITS, coursesByCredits);
+    
+    public Course addCourse(String code, String title, int credits, String instructor, 
+                           Semester semester, String department) {
+        mutationLogs.checkWritable();
         Course course = new Course.Builder(code, title, credits)
             .instructor(instructor)
             .semester(semester)
             .department(department)
             .build();
         
-        courses.put(code, course);
+        synchronized (registryLock) {
+            if (courses.containsKey(course.getCourseCode())) {
+                throw new IllegalArgumentException("Course with code " + code + " already exists");
+            }
+            courses.put(course.getCourseCode(), course);
+            index(course);
+            mutationLogs.publish(log -> log.courseSaved(course));
+        }
         return course;
     }
     
+    // Validates the whole batch up front, then inserts every accepted course in one pass
+    public ImportResult addAll(List<Course> batch) {
+        mutationLogs.checkWritable();
+        ImportResult.Builder result = new ImportResult.Builder();
+        Map<CourseCode, Course> accepted = new LinkedHashMap<>(batch.size() * 4 / 3 + 1);
+        
+        synchronized (registryLock) {
+            for (int row = 0; row < batch.size(); row++) {
+                Course course = batch.get(row);
+                String reason = null;
+                // A Course cannot be built without a valid code, so only the rest is checked here
+                if (course == null) {
+                    reason = "Missing record";
+                } else if (course.getSemester() == null) {
+                    reason = "Missing semester";
+                } else if (courses.containsKey(course.getCourseCode()) || accepted.containsKey(course.getCourseCode())) {
+                    reason = "Course with code " + course.getCode() + " already exists";
+                }
+                
+                if (reason != null) {
+                    result.reject(row, course == null ? null : course.getCode(), reason);
+                } else {
+                    accepted.put(course.getCourseCode(), course);
+                }
+            }
+            
+            // putAll lets the concurrent map presize once for the whole batch
+            courses.putAll(accepted);
+            accepted.values().forEach(this::index);
+            mutationLogs.publish(log -> accepted.values().forEach(log::courseSaved));
+        }
+        return result.accepted(accepted.size()).build();
+    }
+    
     public List<Course> findByInstructor(String instructor) {
-        return findBy(course -> course.getInstructor().equalsIgnoreCase(instructor));
+        return lookup(coursesByInstructor, normalize(instructor));
     }
     
     public List<Course> findByDepartment(String department) {
-        return findBy(course -> course.getDepartment().equalsIgnoreCase(department));
+        return lookup(coursesByDepartment, normalize(department));
     }
     
     public List<Course> findBySemester(Semester semester) {
-        return findBy(course -> course.getSemester() == semester);
+        return lookup(coursesBySemester, semester);
+    }
+    
+    // Ranked partial-title search; the last word matches as a prefix, e.g. "data str"
+    public List<Course> searchByTitle(String query) {
+        return searchByTitle(query, AppConfig.getInstance().getSearchResultLimit());
+    }
+    
+    public List<Course> searchByTitle(String query, int limit) {
+        return titleIndex.search(query, limit);
+    }
+    
+    // Courses whose code starts with the given department prefix, e.g. "CS" for CS101
+    public List<Course> findByCodePrefix(String prefix) {
+        return lookup(coursesByCodePrefix, prefix);
     }
     
-    // Stream API demonstration for GPA distribution
+    // Stream API demonstration for GPA distribution; cached until the next course change
     public Map<String, Long> getCourseCountByDepartment() {
-        return courses.values().stream()
-            .collect(Collectors.groupingBy(
-                Course::getDepartment,
-                Collectors.counting()
-            ));
+        return reportCache.get(List.of("courseCountByDepartment"), version.get(),
+            () -> Collections.unmodifiableMap(courses.values().stream()
+                .collect(Collectors.groupingBy(
+                    Course::getDepartment,
+                    Collectors.counting()
+                ))));
+    }
+    
+    // Read from the prefix index, so this costs the number of prefixes rather than courses
+    public Map<String, Long> getCourseCountByCodePrefix() {
+        Map<String, Long> counts = new TreeMap<>();
+        coursesByCodePrefix.forEach((prefix, bucket) -> counts.put(prefix, (long) bucket.size()));
+        return counts;
     }
     
     // Array utilities demonstration
     public void sortCoursesByCode() {
-        String[] courseCodes = courses.keySet().toArray(new String[0]);
-        Arrays.sort(courseCodes); // Using Arrays class
+        CourseCode[] courseCodes = courses.keySet().toArray(new CourseCode[0]);
+        Arrays.sort(courseCodes, Comparator.comparing(CourseCode::getFullCode)); // Using Arrays class
         
         System.out.println("\n=== Courses Sorted by Code ===");
-        for (String code : courseCodes) {
+        for (CourseCode code : courseCodes) {
             System.out.println(courses.get(code));
         }
     }
@@ -73,40 +221,168 @@ public class CourseService implements Persistable<Course>, Searchable<Course> {
     
     @Override
     public Course findById(String code) {
+        CourseCode key = CourseCode.lookup(code);
+        return key == null ? null : courses.get(key);
+    }
+    
+    public Course findById(CourseCode code) {
         return courses.get(code);
     }
     
+    @Override
+    public Stream<Course> stream() {
+        return courses.values().stream();
+    }
+    
+    @Override
+    public Page<Course> findPage(PageRequest request, Predicate<Course> filter) {
+        return Page.read(coursesByCode, request, filter);
+    }
+    
+    @Override
+    public long count() {
+        return courses.size();
+    }
+    
+    @Override
+    public List<Course> query(Query<Course> query) {
+        return planner.execute(query);
+    }
+    
+    @Override
+    public String explain(Query<Course> query) {
+        return planner.explain(query);
+    }
+    
     @Override
     public void save(Course course) throws IOException {
-        courses.put(course.getCode(), course);
+        mutationLogs.checkWritable();
+        synchronized (registryLock) {
+            Course previous = courses.put(course.getCourseCode(), course);
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(course);
+            mutationLogs.publish(log -> log.courseSaved(course));
+        }
     }
     
     @Override
     public Course load(String code) throws IOException {
-        return courses.get(code);
+        return findById(code);
     }
     
     @Override
     public void delete(String code) throws IOException {
-        courses.remove(code);
+        mutationLogs.checkWritable();
+        synchronized (registryLock) {
+            CourseCode key = CourseCode.lookup(code);
+            Course removed = key == null ? null : courses.remove(key);
+            if (removed != null) {
+                unindex(removed);
+                mutationLogs.publish(log -> log.courseDeleted(code));
+            }
+        }
     }
     
     public boolean updateCourse(String code, String title, String instructor) {
-        Course course = courses.get(code);
+        mutationLogs.checkWritable();
+        Course course = findById(code);
         if (course != null) {
-            course.setTitle(title);
-            course.setInstructor(instructor);
+            synchronized (course) {
+                course.setTitle(title);
+                course.setInstructor(instructor);
+                mutationLogs.publish(log -> log.courseUpdated(code, title, instructor));
+            }
             return true;
         }
         return false;
     }
     
+    public void addMutationLog(MutationLog log) {
+        mutationLogs.add(log);
+    }
+    
+    public void removeMutationLog(MutationLog log) {
+        mutationLogs.remove(log);
+    }
+    
+    // Changes on every write to the catalog, for callers caching results derived from it
+    public long getVersion() {
+        return version.get();
+    }
+    
+    public ReportCache getReportCache() {
+        return reportCache;
+    }
+    
     public boolean deactivateCourse(String code) {
-        Course course = courses.get(code);
+        mutationLogs.checkWritable();
+        Course course = findById(code);
         if (course != null) {
-            course.setStatus(CourseStatus.INACTIVE);
+            synchronized (course) {
+                course.setStatus(CourseStatus.INACTIVE);
+            }
             return true;
         }
         return false;
     }
+    
+    // Index maintenance helpers
+    private void index(Course course) {
+        coursesByCode.put(course.getCode(), course);
+        addToIndex(coursesByInstructor, normalize(course.getInstructor()), course);
+        addToIndex(coursesByDepartment, normalize(course.getDepartment()), course);
+        addToIndex(coursesByCodePrefix, course.getCourseCode().getDepartment(), course);
+        coursesBySemester.get(course.getSemester()).add(course);
+        coursesByCredits.computeIfAbsent(course.getCredits(), k -> ConcurrentHashMap.newKeySet()).add(course);
+        titleIndex.add(course);
+        course.setChangeListener(indexUpdater);
+        version.incrementAndGet();
+    }
+    
+    private void unindex(Course course) {
+        course.setChangeListener(null);
+        coursesByCode.remove(course.getCode(), course);
+        removeFromIndex(coursesByInstructor, normalize(course.getInstructor()), course);
+        removeFromIndex(coursesByDepartment, normalize(course.getDepartment()), course);
+        removeFromIndex(coursesByCodePrefix, course.getCourseCode().getDepartment(), course);
+        coursesBySemester.get(course.getSemester()).remove(course);
+        Set<Course> creditBucket = coursesByCredits.get(course.getCredits());
+        if (creditBucket != null) {
+            creditBucket.remove(course);
+        }
+        titleIndex.remove(course, course.getTitle());
+        version.incrementAndGet();
+    }
+    
+    private static <K> void addToIndex(Map<K, Set<Course>> index, K key, Course course) {
+        // compute() is atomic per key, so an emptied bucket cannot be dropped under a concurrent add
+        index.compute(key, (k, bucket) -> {
+            Set<Course> result = bucket != null ? bucket : ConcurrentHashMap.newKeySet();
+            result.add(course);
+            return result;
+        });
+    }
+    
+    private static <K> void removeFromIndex(Map<K, Set<Course>> index, K key, Course course) {
+        index.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(course);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+    
+    // The live bucket, for the query planner, which filters what it reads
+    private static <K> Set<Course> bucket(Map<K, Set<Course>> index, K key) {
+        return index.getOrDefault(key, Collections.emptySet());
+    }
+    
+    private static <K> List<Course> lookup(Map<K, Set<Course>> index, K key) {
+        Set<Course> bucket = index.get(key);
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+    
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
 }
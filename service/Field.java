@@ -0,0 +1,43 @@
+package edu.ccrm.service;
+
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// A queryable attribute of an entity. Values are compared in canonical form, which for text
+// fields is lower case so queries match the services' case-insensitive indexes.
+public final class Field<T, V> {
+    private final String name;
+    private final Function<T, V> getter;
+    private final UnaryOperator<V> canonical;
+    
+    private Field(String name, Function<T, V> getter, UnaryOperator<V> canonical) {
+        this.name = name;
+        this.getter = getter;
+        this.canonical = canonical;
+    }
+    
+    public static <T, V> Field<T, V> of(String name, Function<T, V> getter) {
+        return new Field<>(name, getter, UnaryOperator.identity());
+    }
+    
+    // Case-insensitive text; null reads as the empty string
+    public static <T> Field<T, String> text(String name, Function<T, String> getter) {
+        return new Field<>(name, getter, value -> value == null ? "" : value.toLowerCase(Locale.ROOT));
+    }
+    
+    public String getName() { return name; }
+    
+    V valueOf(T entity) {
+        return canonical.apply(getter.apply(entity));
+    }
+    
+    V canonical(V value) {
+        return canonical.apply(value);
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
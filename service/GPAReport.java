@@ -0,0 +1,146 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Student;
+import edu.ccrm.util.QuantileSketch;
+
+import java.util.*;
+
+// GPA report built in a single pass: the top and bottom K students by GPA held in bounded
+// heaps, plus a quantile sketch for percentiles and histograms. Reports over separate sets of
+// students can be merged, so groups or partitions can be built independently. A finished
+// report can be sealed read-only before it is handed to several callers.
+public class GPAReport {
+    public static final double MAX_GPA = Arrays.stream(Grade.values())
+        .mapToDouble(Grade::getGradePoints).max().orElse(0.0);
+    private static final double GPA_RESOLUTION = 0.01;
+    
+    // Best first: higher GPA, then lower ID so equal GPAs rank the same way every time
+    private static final Comparator<Ranked> HIGHEST_FIRST = Comparator.comparingDouble(Ranked::getGPA).reversed()
+        .thenComparing(ranked -> ranked.getStudent().getId());
+    private static final Comparator<Ranked> LOWEST_FIRST = Comparator.comparingDouble(Ranked::getGPA)
+        .thenComparing(ranked -> ranked.getStudent().getId());
+    
+    public static class Ranked {
+        private final Student student;
+        private final double gpa;
+        
+        public Ranked(Student student, double gpa) {
+            this.student = student;
+            this.gpa = gpa;
+        }
+        
+        public Student getStudent() { return student; }
+        public double getGPA() { return gpa; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s %s (%.2f)", student.getId(), student.getFullName(), gpa);
+        }
+    }
+    
+    private final int k;
+    // Each heap keeps its weakest entry at the head, ready to be evicted
+    private final PriorityQueue<Ranked> top;
+    private final PriorityQueue<Ranked> bottom;
+    private final QuantileSketch sketch = new QuantileSketch(0.0, MAX_GPA, GPA_RESOLUTION);
+    private double gpaTotal;
+    private boolean readOnly;
+    
+    public GPAReport(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("K must not be negative");
+        }
+        this.k = k;
+        this.top = new PriorityQueue<>(k + 1, HIGHEST_FIRST.reversed());
+        this.bottom = new PriorityQueue<>(k + 1, LOWEST_FIRST.reversed());
+    }
+    
+    public void add(Student student) {
+        add(student, student.calculateGPA());
+    }
+    
+    public void add(Student student, double gpa) {
+        checkWritable();
+        Ranked ranked = new Ranked(student, gpa);
+        offer(top, ranked, HIGHEST_FIRST);
+        offer(bottom, ranked, LOWEST_FIRST);
+        sketch.add(gpa);
+        gpaTotal += gpa;
+    }
+    
+    // Folds another report into this one; both must keep the same K
+    public GPAReport merge(GPAReport other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge reports with different K");
+        }
+        checkWritable();
+        for (Ranked ranked : other.top) {
+            offer(top, ranked, HIGHEST_FIRST);
+        }
+        for (Ranked ranked : other.bottom) {
+            offer(bottom, ranked, LOWEST_FIRST);
+        }
+        sketch.merge(other.sketch);
+        gpaTotal += other.gpaTotal;
+        return this;
+    }
+    
+    // Seals the report; add and merge fail from then on. Returns this report.
+    public GPAReport readOnly() {
+        readOnly = true;
+        return this;
+    }
+    
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+    
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("GPA report is read-only");
+        }
+    }
+    
+    // A full heap only changes when the candidate beats its weakest entry
+    private void offer(PriorityQueue<Ranked> heap, Ranked ranked, Comparator<Ranked> order) {
+        if (heap.size() < k) {
+            heap.add(ranked);
+        } else if (k > 0 && order.compare(ranked, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+    
+    public long getCount() {
+        return sketch.count();
+    }
+    
+    public double getAverageGPA() {
+        return sketch.count() == 0 ? 0.0 : gpaTotal / sketch.count();
+    }
+    
+    // Highest GPAs first
+    public List<Ranked> getTop() {
+        List<Ranked> ranked = new ArrayList<>(top);
+        ranked.sort(HIGHEST_FIRST);
+        return ranked;
+    }
+    
+    // Lowest GPAs first
+    public List<Ranked> getBottom() {
+        List<Ranked> ranked = new ArrayList<>(bottom);
+        ranked.sort(LOWEST_FIRST);
+        return ranked;
+    }
+    
+    // Percentile from 0 to 100, accurate to the nearest 0.01 GPA; NaN for an empty report
+    public double percentile(double percent) {
+        return sketch.quantile(percent / 100.0);
+    }
+    
+    // Student counts in equal-width GPA bins from 0 to MAX_GPA
+    public long[] histogram(int bins) {
+        return sketch.histogram(bins);
+    }
+}
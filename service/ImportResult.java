@@ -0,0 +1,64 @@
+package edu.ccrm.service;
+
+import java.util.*;
+
+public class ImportResult {
+    private final int acceptedCount;
+    private final List<Rejection> rejections;
+    
+    // One rejected record: its position in the batch (or file row), its key and why it was refused
+    public static class Rejection {
+        private final int row;
+        private final String key;
+        private final String reason;
+        
+        public Rejection(int row, String key, String reason) {
+            this.row = row;
+            this.key = key;
+            this.reason = reason;
+        }
+        
+        public int getRow() { return row; }
+        public String getKey() { return key; }
+        public String getReason() { return reason; }
+        
+        @Override
+        public String toString() {
+            return String.format("Row %d (%s): %s", row, key, reason);
+        }
+    }
+    
+    public static class Builder {
+        private int acceptedCount;
+        private final List<Rejection> rejections = new ArrayList<>();
+        
+        public Builder accepted(int count) {
+            acceptedCount += count;
+            return this;
+        }
+        
+        public Builder reject(int row, String key, String reason) {
+            rejections.add(new Rejection(row, key, reason));
+            return this;
+        }
+        
+        public ImportResult build() {
+            rejections.sort(Comparator.comparingInt(Rejection::getRow));
+            return new ImportResult(this);
+        }
+    }
+    
+    private ImportResult(Builder builder) {
+        this.acceptedCount = builder.acceptedCount;
+        this.rejections = Collections.unmodifiableList(new ArrayList<>(builder.rejections));
+    }
+    
+    public int getAcceptedCount() { return acceptedCount; }
+    public int getRejectedCount() { return rejections.size(); }
+    public List<Rejection> getRejections() { return rejections; }
+    
+    @Override
+    public String toString() {
+        return String.format("ImportResult [Accepted: %d, Rejected: %d]", acceptedCount, rejections.size());
+    }
+}
@@ -0,0 +1,28 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+// Receives every successful mutation made through StudentService and CourseService,
+// e.g. to append it to a write-ahead journal. Callbacks run on the mutating thread
+// after the change is applied, so implementations should be quick and must not call
+// back into the services. An exception from a callback is reported and does not reach
+// the caller or the other logs, since the change has already been made.
+public interface MutationLog {
+    // Called before a service operation changes anything; throw to refuse the operation,
+    // e.g. when the log can no longer record it
+    default void checkWritable() {}
+    
+    default void studentSaved(Student student) {}
+    default void studentUpdated(String studentId, String fullName, String email) {}
+    default void studentStatusChanged(String studentId, StudentStatus status) {}
+    default void studentDeleted(String studentId) {}
+    default void enrolled(String studentId, String courseCode) {}
+    default void unenrolled(String studentId, String courseCode) {}
+    default void gradeRecorded(String studentId, String courseCode, Grade grade) {}
+    
+    default void courseSaved(Course course) {}
+    default void courseUpdated(String courseCode, String title, String instructor) {}
+    default void courseSemesterChanged(String courseCode, Semester semester) {}
+    default void courseStatusChanged(String courseCode, CourseStatus status) {}
+    default void courseDeleted(String courseCode) {}
+}
@@ -0,0 +1,37 @@
+package edu.ccrm.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// The MutationLogs registered on a service. Mutations ask checkWritable() before changing
+// anything, so a log that can no longer record them (a failed journal) refuses the operation
+// up front. Once a change is applied, publish() hands it to every log; one that throws is
+// reported and skipped, so it cannot keep the change from the logs after it.
+final class MutationLogs {
+    private final List<MutationLog> logs = new CopyOnWriteArrayList<>();
+    
+    void add(MutationLog log) {
+        logs.add(log);
+    }
+    
+    void remove(MutationLog log) {
+        logs.remove(log);
+    }
+    
+    void checkWritable() {
+        for (MutationLog log : logs) {
+            log.checkWritable();
+        }
+    }
+    
+    void publish(Consumer<MutationLog> change) {
+        for (MutationLog log : logs) {
+            try {
+                change.accept(log);
+            } catch (RuntimeException e) {
+                System.err.println("Mutation log " + log.getClass().getName() + " failed: " + e.getMessage());
+            }
+        }
+    }
+}
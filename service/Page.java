@@ -0,0 +1,46 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Predicate;
+
+// One page of a keyset-paginated query; pass getNextCursor() to PageRequest.after() to continue
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+    
+    Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    // Reads one page from an index sorted by primary key, resuming after the request's cursor.
+    // Only the items on the page (plus one look-ahead match) are visited and kept.
+    static <T> Page<T> read(NavigableMap<String, T> index, PageRequest request, Predicate<? super T> filter) {
+        NavigableMap<String, T> ordered = request.isDescending() ? index.descendingMap() : index;
+        if (request.getAfter() != null) {
+            ordered = ordered.tailMap(request.getAfter(), false);
+        }
+        
+        List<T> items = new ArrayList<>(request.getSize());
+        String lastKey = null;
+        for (Map.Entry<String, T> entry : ordered.entrySet()) {
+            if (!filter.test(entry.getValue())) {
+                continue;
+            }
+            if (items.size() == request.getSize()) {
+                return new Page<>(Collections.unmodifiableList(items), lastKey);
+            }
+            items.add(entry.getValue());
+            lastKey = entry.getKey();
+        }
+        return new Page<>(Collections.unmodifiableList(items), null);
+    }
+    
+    public List<T> getItems() { return items; }
+    public boolean hasNext() { return nextCursor != null; }
+    public String getNextCursor() { return nextCursor; }
+}
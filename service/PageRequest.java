@@ -0,0 +1,36 @@
+package edu.ccrm.service;
+
+// Keyset pagination request: a page size, a direction over the primary key, and the key of
+// the last item already seen (null for the first page). Unlike an offset, the cursor costs
+// the same however deep the page is, and concurrent inserts never shift later pages.
+public class PageRequest {
+    private final int size;
+    private final boolean descending;
+    private final String after;
+    
+    private PageRequest(int size, boolean descending, String after) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.size = size;
+        this.descending = descending;
+        this.after = after;
+    }
+    
+    public static PageRequest first(int size) {
+        return new PageRequest(size, false, null);
+    }
+    
+    public static PageRequest firstDescending(int size) {
+        return new PageRequest(size, true, null);
+    }
+    
+    // The request for the page following one that ended at the given cursor
+    public PageRequest after(String cursor) {
+        return new PageRequest(size, descending, cursor);
+    }
+    
+    public int getSize() { return size; }
+    public boolean isDescending() { return descending; }
+    public String getAfter() { return after; }
+}
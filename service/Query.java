@@ -0,0 +1,132 @@
+package edu.ccrm.service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Immutable query over one entity type: field equality, IN, inclusive ranges, and AND/OR
+// combinations. Build with the static factories, e.g.
+//   Query.and(Query.eq(SEMESTER, Semester.FALL), Query.between(CREDITS, 3, 4))
+// and run through a Queryable service, which picks an index for it where one exists.
+public final class Query<T> {
+    enum Op { EQ, IN, RANGE, AND, OR }
+    
+    private final Op op;
+    private final Field<T, ?> field;
+    private final Set<Object> values;
+    private final Comparable<Object> low;
+    private final Comparable<Object> high;
+    private final List<Query<T>> children;
+    
+    private Query(Op op, Field<T, ?> field, Set<Object> values, Comparable<Object> low,
+                  Comparable<Object> high, List<Query<T>> children) {
+        this.op = op;
+        this.field = field;
+        this.values = values;
+        this.low = low;
+        this.high = high;
+        this.children = children;
+    }
+    
+    public static <T, V> Query<T> eq(Field<T, V> field, V value) {
+        return new Query<>(Op.EQ, field, Collections.singleton(field.canonical(value)), null, null, List.of());
+    }
+    
+    public static <T, V> Query<T> in(Field<T, V> field, Collection<V> values) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("IN needs at least one value");
+        }
+        Set<Object> canonical = new LinkedHashSet<>();
+        for (V value : values) {
+            canonical.add(field.canonical(value));
+        }
+        return new Query<>(Op.IN, field, Collections.unmodifiableSet(canonical), null, null, List.of());
+    }
+    
+    // Inclusive at both ends; a null bound leaves that side open
+    @SuppressWarnings("unchecked")
+    public static <T, V extends Comparable<? super V>> Query<T> between(Field<T, V> field, V low, V high) {
+        if (low == null && high == null) {
+            throw new IllegalArgumentException("A range needs at least one bound");
+        }
+        return new Query<>(Op.RANGE, field, null, (Comparable<Object>) low, (Comparable<Object>) high, List.of());
+    }
+    
+    public static <T, V extends Comparable<? super V>> Query<T> atLeast(Field<T, V> field, V low) {
+        return between(field, low, null);
+    }
+    
+    public static <T, V extends Comparable<? super V>> Query<T> atMost(Field<T, V> field, V high) {
+        return between(field, null, high);
+    }
+    
+    // Combines conditions, e.g. and(List.of(a, b)) or the filters a user filled in
+    public static <T> Query<T> and(List<Query<T>> queries) {
+        return combine(Op.AND, List.copyOf(queries));
+    }
+    
+    public static <T> Query<T> or(List<Query<T>> queries) {
+        return combine(Op.OR, List.copyOf(queries));
+    }
+    
+    private static <T> Query<T> combine(Op op, List<Query<T>> queries) {
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException(op + " needs at least one query");
+        }
+        if (queries.size() == 1) {
+            return queries.get(0);
+        }
+        return new Query<>(op, null, null, null, null, queries);
+    }
+    
+    public boolean matches(T entity) {
+        switch (op) {
+            case EQ, IN -> {
+                return values.contains(field.valueOf(entity));
+            }
+            case RANGE -> {
+                Object value = field.valueOf(entity);
+                return value != null
+                    && (low == null || low.compareTo(value) <= 0)
+                    && (high == null || high.compareTo(value) >= 0);
+            }
+            case AND -> {
+                for (Query<T> child : children) {
+                    if (!child.matches(entity)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            default -> {
+                for (Query<T> child : children) {
+                    if (child.matches(entity)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+    }
+    
+    // Accessors for the planner
+    Op getOp() { return op; }
+    Field<T, ?> getField() { return field; }
+    Set<Object> getValues() { return values; }
+    Comparable<Object> getLow() { return low; }
+    Comparable<Object> getHigh() { return high; }
+    List<Query<T>> getChildren() { return children; }
+    
+    @Override
+    public String toString() {
+        return switch (op) {
+            case EQ -> field + " = " + values.iterator().next();
+            case IN -> field + " IN (" + values.stream().map(String::valueOf).collect(Collectors.joining(", ")) + ")";
+            case RANGE -> low == null ? field + " <= " + high
+                : high == null ? field + " >= " + low
+                : field + " BETWEEN " + low + " AND " + high;
+            default -> children.stream()
+                .map(child -> child.children.isEmpty() ? child.toString() : "(" + child + ")")
+                .collect(Collectors.joining(" " + op + " "));
+        };
+    }
+}
@@ -0,0 +1,252 @@
+package edu.ccrm.service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Chooses an access path for a Query from the indexes a service registers.
+//
+// Equality and IN use a key index (or a point range on a sorted index), ranges use a sorted
+// index, AND drives from its most selective indexed branch, and OR unions its branches when
+// every branch is indexed. Anything else scans. The full query is always re-checked on top
+// of the access path, so indexes only have to narrow the candidates, never be exact.
+public class QueryPlanner<T> {
+    private final String entityName;
+    private final Supplier<Stream<T>> scan;
+    private final LongSupplier size;
+    private final Map<Field<T, ?>, KeyIndex<T>> keyIndexes = new HashMap<>();
+    private final Map<Field<T, ?>, SortedIndex<T>> sortedIndexes = new HashMap<>();
+    
+    private static class KeyIndex<T> {
+        final String name;
+        final Function<Object, Collection<T>> lookup;
+        
+        KeyIndex(String name, Function<Object, Collection<T>> lookup) {
+            this.name = name;
+            this.lookup = lookup;
+        }
+    }
+    
+    private static class SortedIndex<T> {
+        final String name;
+        final NavigableMap<Object, ? extends Collection<T>> index;
+        
+        SortedIndex(String name, NavigableMap<Object, ? extends Collection<T>> index) {
+            this.name = name;
+            this.index = index;
+        }
+    }
+    
+    public QueryPlanner(String entityName, Supplier<Stream<T>> scan, LongSupplier size) {
+        this.entityName = entityName;
+        this.scan = scan;
+        this.size = size;
+    }
+    
+    // Registers an index answering "entities whose field equals this canonical value"
+    @SuppressWarnings("unchecked")
+    public <V> QueryPlanner<T> keyIndex(String name, Field<T, V> field, Function<V, Collection<T>> lookup) {
+        keyIndexes.put(field, new KeyIndex<>(name, value -> lookup.apply((V) value)));
+        return this;
+    }
+    
+    // Registers a map from field value to entities, sorted by value
+    @SuppressWarnings("unchecked")
+    public <V extends Comparable<? super V>> QueryPlanner<T> sortedIndex(String name, Field<T, V> field,
+                                                                        NavigableMap<V, ? extends Collection<T>> index) {
+        sortedIndexes.put(field, new SortedIndex<>(name, (NavigableMap<Object, ? extends Collection<T>>) (NavigableMap<?, ?>) index));
+        return this;
+    }
+    
+    public List<T> execute(Query<T> query) {
+        return plan(query).rows().collect(Collectors.toList());
+    }
+    
+    public String explain(Query<T> query) {
+        StringBuilder out = new StringBuilder();
+        plan(query).describe(out, 0);
+        return out.toString();
+    }
+    
+    Plan<T> plan(Query<T> query) {
+        return new Filter<>(accessPath(query), query);
+    }
+    
+    private Plan<T> accessPath(Query<T> query) {
+        switch (query.getOp()) {
+            case EQ, IN -> {
+                KeyIndex<T> keyIndex = keyIndexes.get(query.getField());
+                if (keyIndex != null) {
+                    return new IndexLookup<>(keyIndex, query);
+                }
+                SortedIndex<T> sortedIndex = sortedIndexes.get(query.getField());
+                if (sortedIndex != null) {
+                    List<Plan<T>> points = new ArrayList<>();
+                    for (Object value : query.getValues()) {
+                        points.add(new RangeScan<>(sortedIndex, query.getField() + " = " + value, value, value));
+                    }
+                    return points.size() == 1 ? points.get(0) : new Union<>(points);
+                }
+                return new Scan<>(this);
+            }
+            case RANGE -> {
+                SortedIndex<T> sortedIndex = sortedIndexes.get(query.getField());
+                return sortedIndex == null ? new Scan<>(this)
+                    : new RangeScan<>(sortedIndex, query.toString(), query.getLow(), query.getHigh());
+            }
+            case AND -> {
+                // Drive from the cheapest indexed branch; the rest is checked by the filter
+                Plan<T> best = null;
+                for (Query<T> child : query.getChildren()) {
+                    Plan<T> path = accessPath(child);
+                    if (!(path instanceof Scan) && (best == null || path.estimate() < best.estimate())) {
+                        best = path;
+                    }
+                }
+                return best != null ? best : new Scan<>(this);
+            }
+            default -> {
+                // A union only helps if no branch needs a scan anyway
+                List<Plan<T>> branches = new ArrayList<>();
+                for (Query<T> child : query.getChildren()) {
+                    Plan<T> path = accessPath(child);
+                    if (path instanceof Scan) {
+                        return path;
+                    }
+                    branches.add(path);
+                }
+                return new Union<>(branches);
+            }
+        }
+    }
+    
+    // Plan operators
+    
+    abstract static class Plan<T> {
+        abstract long estimate();
+        abstract Stream<T> rows();
+        abstract void describe(StringBuilder out, int depth);
+        
+        void line(StringBuilder out, int depth, String text) {
+            out.append("  ".repeat(depth)).append(text).append(" (~").append(estimate()).append(" rows)\n");
+        }
+    }
+    
+    private static class Scan<T> extends Plan<T> {
+        private final QueryPlanner<T> planner;
+        
+        Scan(QueryPlanner<T> planner) {
+            this.planner = planner;
+        }
+        
+        long estimate() { return planner.size.getAsLong(); }
+        Stream<T> rows() { return planner.scan.get(); }
+        void describe(StringBuilder out, int depth) { line(out, depth, "FullScan " + planner.entityName); }
+    }
+    
+    private static class IndexLookup<T> extends Plan<T> {
+        private final KeyIndex<T> index;
+        private final Query<T> query;
+        
+        IndexLookup(KeyIndex<T> index, Query<T> query) {
+            this.index = index;
+            this.query = query;
+        }
+        
+        long estimate() {
+            long rows = 0;
+            for (Object value : query.getValues()) {
+                rows += index.lookup.apply(value).size();
+            }
+            return rows;
+        }
+        
+        // Buckets of different values may overlap, e.g. when one value maps to every entity
+        Stream<T> rows() {
+            Stream<T> rows = query.getValues().stream().flatMap(value -> index.lookup.apply(value).stream());
+            return query.getValues().size() > 1 ? rows.distinct() : rows;
+        }
+        
+        void describe(StringBuilder out, int depth) { line(out, depth, "IndexLookup " + index.name + " [" + query + "]"); }
+    }
+    
+    private static class RangeScan<T> extends Plan<T> {
+        private final SortedIndex<T> index;
+        private final String condition;
+        private final Object low;
+        private final Object high;
+        
+        RangeScan(SortedIndex<T> index, String condition, Object low, Object high) {
+            this.index = index;
+            this.condition = condition;
+            this.low = low;
+            this.high = high;
+        }
+        
+        private NavigableMap<Object, ? extends Collection<T>> range() {
+            if (low == null) {
+                return index.index.headMap(high, true);
+            }
+            if (high == null) {
+                return index.index.tailMap(low, true);
+            }
+            return index.index.subMap(low, true, high, true);
+        }
+        
+        long estimate() {
+            long rows = 0;
+            for (Collection<T> bucket : range().values()) {
+                rows += bucket.size();
+            }
+            return rows;
+        }
+        
+        Stream<T> rows() {
+            return range().values().stream().flatMap(Collection::stream);
+        }
+        
+        void describe(StringBuilder out, int depth) { line(out, depth, "RangeScan " + index.name + " [" + condition + "]"); }
+    }
+    
+    private static class Union<T> extends Plan<T> {
+        private final List<Plan<T>> branches;
+        
+        Union(List<Plan<T>> branches) {
+            this.branches = branches;
+        }
+        
+        long estimate() {
+            return branches.stream().mapToLong(Plan::estimate).sum();
+        }
+        
+        Stream<T> rows() {
+            return branches.stream().flatMap(Plan::rows).distinct();
+        }
+        
+        void describe(StringBuilder out, int depth) {
+            line(out, depth, "Union");
+            branches.forEach(branch -> branch.describe(out, depth + 1));
+        }
+    }
+    
+    private static class Filter<T> extends Plan<T> {
+        private final Plan<T> input;
+        private final Query<T> query;
+        
+        Filter(Plan<T> input, Query<T> query) {
+            this.input = input;
+            this.query = query;
+        }
+        
+        long estimate() { return input.estimate(); }
+        Stream<T> rows() { return input.rows().filter(query::matches); }
+        
+        void describe(StringBuilder out, int depth) {
+            out.append("  ".repeat(depth)).append("Filter [").append(query).append("]\n");
+            input.describe(out, depth + 1);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package edu.ccrm.service;
+
+import java.util.List;
+
+public interface Queryable<T> {
+    // Runs the query through the cheapest available index, falling back to a scan
+    List<T> query(Query<T> query);
+    
+    // The plan query() would use, one operator per line with row estimates
+    String explain(Query<T> query);
+}
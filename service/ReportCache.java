@@ -0,0 +1,76 @@
+package edu.ccrm.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Memoizes report results between writes.
+//
+// Each result is stored with the version stamp of the data it was computed from. The owning
+// service bumps its version after every write, so a lookup with an unchanged stamp is a hit
+// served without recomputing, and anything else is a miss that recomputes and replaces the
+// entry. Nothing is ever invalidated eagerly, so writers pay one counter increment.
+public class ReportCache {
+    private static class Entry {
+        final long version;
+        final Object value;
+        
+        Entry(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+    
+    private final int maxEntries;
+    private final Map<List<?>, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    public ReportCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+    
+    // The key is the report name followed by its parameters, e.g. List.of("gpaReport", 10).
+    // The version must be read before the report is computed: a write that races with the
+    // computation then leaves the entry one version behind, and the next lookup recomputes.
+    @SuppressWarnings("unchecked")
+    public <R> R get(List<?> key, long version, Supplier<R> report) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == version) {
+            hits.increment();
+            return (R) entry.value;
+        }
+        
+        misses.increment();
+        R value = report.get();
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            // Distinct parameter sets are few in practice; start over rather than track recency
+            entries.clear();
+        }
+        // Never replace a result computed from newer data with an older one
+        entries.merge(key, new Entry(version, value),
+            (current, computed) -> current.version > computed.version ? current : computed);
+        return value;
+    }
+    
+    public void clear() {
+        entries.clear();
+    }
+    
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public int size() { return entries.size(); }
+    
+    @Override
+    public String toString() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return String.format("%d cached reports, %d hits, %d misses (%.1f%% hit rate)",
+            entries.size(), hitCount, total - hitCount, total == 0 ? 0.0 : 100.0 * hitCount / total);
+    }
+}
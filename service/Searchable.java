@@ -2,14 +2,29 @@ package edu.ccrm.service;
 
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public interface Searchable<T> {
     List<T> findAll();
     List<T> findBy(Predicate<T> predicate);
     T findById(String id);
     
+    // Lazy, weakly consistent stream over the live registry; nothing is copied up front
+    Stream<T> stream();
+    
+    // Keyset-paginated read in primary-key order, keeping only the matching items of one page
+    Page<T> findPage(PageRequest request, Predicate<T> filter);
+    
+    default Page<T> findPage(PageRequest request) {
+        return findPage(request, entity -> true);
+    }
+    
     // Default method
     default long count() {
-        return findAll().size();
+        return stream().count();
+    }
+    
+    default long count(Predicate<T> predicate) {
+        return stream().filter(predicate).count();
     }
 }
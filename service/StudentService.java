@@ -3,52 +3,299 @@ package edu.ccrm.service;
 import edu.ccrm.domain.*;
 import edu.ccrm.exception.*;
 import edu.ccrm.config.AppConfig;
+import edu.ccrm.util.StripedLock;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.io.IOException;
 import java.nio.file.Path;
 
-public class StudentService implements Persistable<Student>, Searchable<Student> {
-    private final Map<String, Student> students = new HashMap<>();
+public class StudentService implements Persistable<Student>, Searchable<Student>, Queryable<Student> {
+    private final Map<String, Student> students = new ConcurrentHashMap<>();
     private final AppConfig config = AppConfig.getInstance();
     
+    // Unique indexes for registrar lookups and a status-partitioned index for reports
+    private final Map<String, Student> studentsByRegNo = new ConcurrentHashMap<>();
+    private final Map<String, Student> studentsByEmail = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Student> studentsById = new ConcurrentSkipListMap<>();
+    
+    // Sorted by GPA for range queries. Buckets are left in place when they empty, since
+    // ConcurrentSkipListMap.compute is not atomic; the number of distinct GPAs is small.
+    private final NavigableMap<Double, Set<Student>> studentsByGPA = new ConcurrentSkipListMap<>();
+    private final TextIndex<Student> nameIndex = new TextIndex<>(Student::getFullName, Student::getId);
+    private final Map<StudentStatus, Map<String, Student>> studentsByStatus = new EnumMap<>(StudentStatus.class);
+    
+    // Cohort-wide GPA aggregates over ACTIVE students, updated on each grade or status change
+    private final Object aggregateLock = new Object();
+    private int activeCount;
+    private double activeGPATotal;
+    private final long[] activeGPADistribution = new long[Student.GPAStatistics.bandCount()];
+    
+    // Registry changes (add/save/delete/email) are serialized; enrollments use per-entity stripes
+    private final Object registryLock = new Object();
+    private final StripedLock entityLocks = new StripedLock(config.getEnrollmentLockStripes());
+    
+    private final MutationLogs mutationLogs = new MutationLogs();
+    
+    // Bumped after every write; cached reports computed at an older version are recomputed
+    private final AtomicLong version = new AtomicLong();
+    private final ReportCache reportCache = new ReportCache(config.getReportCacheSize());
+    
+    private final Student.ChangeListener indexUpdater = new Student.ChangeListener() {
+        @Override
+        public void onNameChanged(Student student, String oldName) {
+            nameIndex.update(student, oldName);
+            version.incrementAndGet();
+        }
+        
+        @Override
+        public void onEmailChanged(Student student, String oldEmail) {
+            String oldKey = normalize(oldEmail);
+            if (oldKey != null) {
+                studentsByEmail.remove(oldKey, student);
+            }
+            String newKey = normalize(student.getEmail());
+            if (newKey != null) {
+                studentsByEmail.put(newKey, student);
+            }
+            version.incrementAndGet();
+        }
+        
+        @Override
+        public void onStatusChanged(Student student, StudentStatus oldStatus) {
+            studentsByStatus.get(oldStatus).remove(student.getId(), student);
+            studentsByStatus.get(student.getStatus()).put(student.getId(), student);
+            if (oldStatus == StudentStatus.ACTIVE) {
+                removeFromAggregates(student.calculateGPA());
+            }
+            if (student.getStatus() == StudentStatus.ACTIVE) {
+                addToAggregates(student.calculateGPA());
+            }
+            version.incrementAndGet();
+            mutationLogs.publish(log -> log.studentStatusChanged(student.getId(), student.getStatus()));
+        }
+        
+        @Override
+        public void onGPAChanged(Student student, double oldGPA) {
+            removeFromSortedIndex(studentsByGPA, oldGPA, student);
+            addToSortedIndex(studentsByGPA, student.calculateGPA(), student);
+            if (student.getStatus() == StudentStatus.ACTIVE) {
+                removeFromAggregates(oldGPA);
+                addToAggregates(student.calculateGPA());
+            }
+            version.incrementAndGet();
+        }
+        
+        @Override
+        public void onEnrollmentChanged(Student student) {
+            version.incrementAndGet();
+        }
+    };
+    
+    {
+        for (StudentStatus status : StudentStatus.values()) {
+            studentsByStatus.put(status, new ConcurrentHashMap<>());
+        }
+    }
+    
+    // Queryable fields of a student
+    public static final class Fields {
+        public static final Field<Student, String> ID = Field.of("id", Student::getId);
+        public static final Field<Student, String> REG_NO = Field.of("regNo", Student::getRegNo);
+        public static final Field<Student, String> NAME = Field.text("name", Student::getFullName);
+        public static final Field<Student, String> EMAIL = Field.text("email", Student::getEmail);
+        public static final Field<Student, StudentStatus> STATUS = Field.of("status", Student::getStatus);
+        public static final Field<Student, Double> GPA = Field.of("gpa", Student::calculateGPA);
+        
+        private Fields() {}
+    }
+    
+    private final QueryPlanner<Student> planner = new QueryPlanner<Student>("students", this::stream, this::count)
+        .keyIndex("students", Fields.ID, id -> single(students.get(id)))
+        .keyIndex("studentsByRegNo", Fields.REG_NO, regNo -> single(studentsByRegNo.get(regNo)))
+        .keyIndex("studentsByEmail", Fields.EMAIL,
+            email -> normalize(email) == null ? students.values() : single(studentsByEmail.get(email)))
+        .keyIndex("studentsByStatus", Fields.STATUS, status -> studentsByStatus.get(status).values())
+        .sortedIndex("studentsByGPA", Fields.GPA, studentsByGPA);
+    
+    private static final String NEWLINE = System.lineSeparator();
+    
     // Inner class for transcript operations
     public class TranscriptService {
+        // Grade points as printed, e.g. "3.7", so rendering never formats a double
+        private final String[] gradePointText = Arrays.stream(Grade.values())
+            .map(grade -> String.format("%.1f", grade.getGradePoints()))
+            .toArray(String[]::new);
+        
         public void printTranscript(String studentId) {
             Student student = students.get(studentId);
             if (student != null) {
-                System.out.println("\n=== OFFICIAL TRANSCRIPT ===");
-                System.out.println("Student: " + student.getFullName() + " (" + student.getRegNo() + ")");
-                System.out.println("Student ID: " + student.getId());
-                System.out.println("\nCourses and Grades:");
-                
-                student.getCourseGrades().forEach((courseCode, grade) -> {
-                    System.out.printf("%-10s: %s (%.1f points)%n", 
-                        courseCode, grade, grade.getGradePoints());
-                });
-                
-                System.out.printf("\nCumulative GPA: %.2f%n", student.calculateGPA());
-                System.out.println("Date Generated: " + java.time.LocalDateTime.now());
+                StringBuilder out = new StringBuilder(512);
+                appendTranscript(student, java.time.LocalDateTime.now().toString(), out);
+                System.out.print(out);
             }
         }
+        
+        // Appends the transcript text to a caller-owned buffer, so batch rendering can reuse one
+        // buffer per thread; the output matches what printTranscript has always printed
+        public void appendTranscript(Student student, String generatedAt, StringBuilder out) {
+            out.append(NEWLINE).append("=== OFFICIAL TRANSCRIPT ===").append(NEWLINE)
+                .append("Student: ").append(student.getFullName())
+                .append(" (").append(student.getRegNo()).append(')').append(NEWLINE)
+                .append("Student ID: ").append(student.getId()).append(NEWLINE)
+                .append(NEWLINE).append("Courses and Grades:").append(NEWLINE);
+            
+            student.getCourseGrades().forEach((courseCode, grade) -> {
+                out.append(courseCode);
+                for (int pad = courseCode.length(); pad < 10; pad++) {
+                    out.append(' ');
+                }
+                out.append(": ").append(grade.name())
+                    .append(" (").append(gradePointText[grade.ordinal()]).append(" points)").append(NEWLINE);
+            });
+            
+            int gpa = student.getGPAHundredths();
+            out.append(NEWLINE).append("Cumulative GPA: ").append(gpa / 100).append('.');
+            if (gpa % 100 < 10) {
+                out.append('0');
+            }
+            out.append(gpa % 100).append(NEWLINE)
+                .append("Date Generated: ").append(generatedAt).append(NEWLINE);
+        }
     }
     
     private final TranscriptService transcriptService = new TranscriptService();
     
     public Student addStudent(String id, String regNo, String fullName, String email) {
-        if (students.containsKey(id)) {
-            throw new IllegalArgumentException("Student with ID " + id + " already exists");
+        mutationLogs.checkWritable();
+        requireKeys(id, regNo);
+        synchronized (registryLock) {
+            if (students.containsKey(id)) {
+                throw new IllegalArgumentException("Student with ID " + id + " already exists");
+            }
+            checkUnique(id, regNo, email);
+            
+            Student student = new Student(id, regNo, fullName, email);
+            students.put(id, student);
+            index(student);
+            mutationLogs.publish(log -> log.studentSaved(student));
+            return student;
         }
+    }
+    
+    // Validates the whole batch up front, then inserts every accepted student in one pass
+    public ImportResult addAll(List<Student> batch) {
+        mutationLogs.checkWritable();
+        ImportResult.Builder result = new ImportResult.Builder();
+        Map<String, Student> accepted = new LinkedHashMap<>(batch.size() * 4 / 3 + 1);
+        Map<String, Student> acceptedByRegNo = new HashMap<>(batch.size() * 4 / 3 + 1);
+        Map<String, Student> acceptedByEmail = new HashMap<>(batch.size() * 4 / 3 + 1);
         
-        Student student = new Student(id, regNo, fullName, email);
-        students.put(id, student);
-        return student;
+        synchronized (registryLock) {
+            for (int row = 0; row < batch.size(); row++) {
+                Student student = batch.get(row);
+                String reason = validateForInsert(student, accepted, acceptedByRegNo, acceptedByEmail);
+                if (reason != null) {
+                    result.reject(row, student == null ? null : student.getId(), reason);
+                    continue;
+                }
+                accepted.put(student.getId(), student);
+                acceptedByRegNo.put(student.getRegNo(), student);
+                String email = normalize(student.getEmail());
+                if (email != null) {
+                    acceptedByEmail.put(email, student);
+                }
+            }
+            
+            // putAll lets the concurrent maps presize once for the whole batch
+            students.putAll(accepted);
+            studentsByRegNo.putAll(acceptedByRegNo);
+            studentsByEmail.putAll(acceptedByEmail);
+            
+            long[] distribution = new long[activeGPADistribution.length];
+            double gpaTotal = 0.0;
+            int activeAdded = 0;
+            for (Student student : accepted.values()) {
+                studentsById.put(student.getId(), student);
+                studentsByStatus.get(student.getStatus()).put(student.getId(), student);
+                double gpa = student.calculateGPA();
+                addToSortedIndex(studentsByGPA, gpa, student);
+                nameIndex.add(student);
+                if (student.getStatus() == StudentStatus.ACTIVE) {
+                    gpaTotal += gpa;
+                    distribution[Student.GPAStatistics.bandOf(gpa)]++;
+                    activeAdded++;
+                }
+                student.setChangeListener(indexUpdater);
+            }
+            synchronized (aggregateLock) {
+                activeCount += activeAdded;
+                activeGPATotal += gpaTotal;
+                for (int band = 0; band < distribution.length; band++) {
+                    activeGPADistribution[band] += distribution[band];
+                }
+            }
+            version.incrementAndGet();
+            mutationLogs.publish(log -> accepted.values().forEach(log::studentSaved));
+        }
+        return result.accepted(accepted.size()).build();
+    }
+    
+    private String validateForInsert(Student student, Map<String, Student> accepted,
+                                     Map<String, Student> acceptedByRegNo, Map<String, Student> acceptedByEmail) {
+        if (student == null) {
+            return "Missing record";
+        }
+        if (student.getId() == null || student.getId().isEmpty()) {
+            return "Missing student ID";
+        }
+        if (student.getRegNo() == null || student.getRegNo().isEmpty()) {
+            return "Missing registration number";
+        }
+        if (students.containsKey(student.getId()) || accepted.containsKey(student.getId())) {
+            return "Student with ID " + student.getId() + " already exists";
+        }
+        if (studentsByRegNo.containsKey(student.getRegNo()) || acceptedByRegNo.containsKey(student.getRegNo())) {
+            return "Registration number " + student.getRegNo() + " is already in use";
+        }
+        String email = normalize(student.getEmail());
+        if (email != null && (studentsByEmail.containsKey(email) || acceptedByEmail.containsKey(email))) {
+            return "Email " + student.getEmail() + " is already in use";
+        }
+        return null;
+    }
+    
+    public Student findByRegNo(String regNo) {
+        return studentsByRegNo.get(regNo);
+    }
+    
+    public Student findByEmail(String email) {
+        String key = normalize(email);
+        return key == null ? null : studentsByEmail.get(key);
+    }
+    
+    // Ranked partial-name search; the last word matches as a prefix, e.g. "jo smi"
+    public List<Student> searchByName(String query) {
+        return searchByName(query, config.getSearchResultLimit());
+    }
+    
+    public List<Student> searchByName(String query, int limit) {
+        return nameIndex.search(query, limit);
+    }
+    
+    public List<Student> findByStatus(StudentStatus status) {
+        return new ArrayList<>(studentsByStatus.get(status).values());
     }
     
     public void enrollStudentInCourse(String studentId, String courseCode, CourseService courseService) 
             throws DuplicateEnrollmentException, MaxCreditLimitExceededException {
+        mutationLogs.checkWritable();
         
         Student student = findById(studentId);
         Course course = courseService.findById(courseCode);
@@ -57,63 +304,155 @@ public class StudentService implements Persistable<Student>, Searchable<Student>
             throw new IllegalArgumentException("Student or course not found");
         }
         
-        // Check for duplicate enrollment
-        if (student.getEnrolledCourses().contains(courseCode)) {
-            throw new DuplicateEnrollmentException(
-                "Student " + studentId + " is already enrolled in course " + courseCode);
-        }
-        
-        // Check credit limit
-        int currentCredits = student.getEnrolledCourses().stream()
-            .mapToInt(code -> {
+        // Check and mutate atomically across the student and the course
+        entityLocks.lock(student, course);
+        try {
+            // Check for duplicate enrollment
+            if (student.isEnrolledIn(course.getCourseCode())) {
+                throw new DuplicateEnrollmentException(
+                    "Student " + studentId + " is already enrolled in course " + courseCode);
+            }
+            
+            // Check credit limit
+            int currentCredits = student.sumOverEnrolledCourses(code -> {
                 Course c = courseService.findById(code);
                 return c != null ? c.getCredits() : 0;
-            })
-            .sum();
-        
-        int newTotalCredits = currentCredits + course.getCredits();
-        if (newTotalCredits > config.getMaxCreditsPerSemester()) {
-            throw new MaxCreditLimitExceededException(
-                "Enrollment would exceed maximum credit limit", 
-                newTotalCredits, config.getMaxCreditsPerSemester());
+            });
+            
+            int newTotalCredits = currentCredits + course.getCredits();
+            if (newTotalCredits > config.getMaxCreditsPerSemester()) {
+                throw new MaxCreditLimitExceededException(
+                    "Enrollment would exceed maximum credit limit", 
+                    newTotalCredits, config.getMaxCreditsPerSemester());
+            }
+            
+            student.enrollInCourse(course.getCourseCode());
+            course.enrollStudent(studentId);
+            mutationLogs.publish(log -> log.enrolled(studentId, courseCode));
+        } finally {
+            entityLocks.unlock(student, course);
         }
-        
-        student.enrollInCourse(courseCode);
-        course.enrollStudent(studentId);
     }
     
     public void unenrollStudentFromCourse(String studentId, String courseCode, CourseService courseService) {
+        mutationLogs.checkWritable();
         Student student = findById(studentId);
         Course course = courseService.findById(courseCode);
         
         if (student != null && course != null) {
-            student.unenrollFromCourse(courseCode);
-            course.unenrollStudent(studentId);
+            entityLocks.lock(student, course);
+            try {
+                student.unenrollFromCourse(course.getCourseCode());
+                course.unenrollStudent(studentId);
+                mutationLogs.publish(log -> log.unenrolled(studentId, courseCode));
+            } finally {
+                entityLocks.unlock(student, course);
+            }
         }
     }
     
     public void recordGrade(String studentId, String courseCode, Grade grade) {
+        mutationLogs.checkWritable();
         Student student = findById(studentId);
         if (student != null) {
-            student.recordGrade(courseCode, grade);
+            entityLocks.lock(student);
+            try {
+                if (student.isEnrolledIn(courseCode)) {
+                    student.recordGrade(courseCode, grade);
+                    mutationLogs.publish(log -> log.gradeRecorded(studentId, courseCode, grade));
+                }
+            } finally {
+                entityLocks.unlock(student);
+            }
         }
     }
     
     public Student.GPAStatistics calculateGPAStatistics() {
-        List<Student> activeStudents = findBy(s -> s.getStatus() == StudentStatus.ACTIVE);
-        
-        double avgGPA = activeStudents.stream()
-            .mapToDouble(Student::calculateGPA)
-            .average()
-            .orElse(0.0);
-        
-        return new Student.GPAStatistics(avgGPA, activeStudents.size());
+        synchronized (aggregateLock) {
+            double avgGPA = activeCount == 0 ? 0.0 : activeGPATotal / activeCount;
+            return new Student.GPAStatistics(avgGPA, activeCount, activeGPADistribution);
+        }
+    }
+    
+    // Ranking reports cover ACTIVE students with at least one recorded grade, so students who
+    // have not been graded yet do not land on the probation list with a 0.0. Results are cached
+    // until the next write and shared between callers, so they are sealed read-only.
+    public GPAReport gpaReport(int k) {
+        return reportCache.get(List.of("gpaReport", k), version.get(), () -> computeGPAReport(k));
+    }
+    
+    private GPAReport computeGPAReport(int k) {
+        GPAReport report = new GPAReport(k);
+        for (Student student : studentsByStatus.get(StudentStatus.ACTIVE).values()) {
+            if (student.getGradedCourseCount() > 0) {
+                report.add(student);
+            }
+        }
+        return report.readOnly();
+    }
+    
+    // One report per department the student takes courses in, keyed by department
+    public Map<String, GPAReport> gpaReportByDepartment(int k, CourseService courseService) {
+        // Depends on both catalogs; each version only grows, so their sum changes on any write
+        long combinedVersion = version.get() + courseService.getVersion();
+        return reportCache.get(List.of("gpaReportByDepartment", k), combinedVersion,
+            () -> groupedGPAReport(k, student -> departmentsOf(student, courseService)));
+    }
+    
+    private static Set<String> departmentsOf(Student student, CourseService courseService) {
+        Set<String> departments = new HashSet<>();
+        for (String code : student.getEnrolledCourses()) {
+            Course course = courseService.findById(code);
+            if (course != null) {
+                departments.add(course.getDepartment());
+            }
+        }
+        return departments;
+    }
+    
+    // One report per enrolled course, keyed by course code
+    public Map<String, GPAReport> gpaReportByCourse(int k) {
+        return reportCache.get(List.of("gpaReportByCourse", k), version.get(),
+            () -> groupedGPAReport(k, Student::getEnrolledCourses));
+    }
+    
+    // Single pass: each student's GPA is read once and fed to every group it belongs to
+    private Map<String, GPAReport> groupedGPAReport(int k, Function<Student, Collection<String>> groupsOf) {
+        Map<String, GPAReport> reports = new TreeMap<>();
+        for (Student student : studentsByStatus.get(StudentStatus.ACTIVE).values()) {
+            if (student.getGradedCourseCount() == 0) {
+                continue;
+            }
+            double gpa = student.calculateGPA();
+            for (String group : groupsOf.apply(student)) {
+                reports.computeIfAbsent(group, g -> new GPAReport(k)).add(student, gpa);
+            }
+        }
+        reports.values().forEach(GPAReport::readOnly);
+        return Collections.unmodifiableMap(reports);
     }
     
     public TranscriptService getTranscriptService() {
         return transcriptService;
     }
     
+    public void addMutationLog(MutationLog log) {
+        mutationLogs.add(log);
+    }
+    
+    public void removeMutationLog(MutationLog log) {
+        mutationLogs.remove(log);
+    }
+    
+    // Changes on every write to students or their enrollments, for callers caching derived results
+    public long getVersion() {
+        return version.get();
+    }
+    
+    public ReportCache getReportCache() {
+        return reportCache;
+    }
+    
     // Interface implementations
     @Override
     public List<Student> findAll() {
@@ -132,9 +471,44 @@ public class StudentService implements Persistable<Student>, Searchable<Student>
         return students.get(id);
     }
     
+    @Override
+    public Stream<Student> stream() {
+        return students.values().stream();
+    }
+    
+    @Override
+    public Page<Student> findPage(PageRequest request, Predicate<Student> filter) {
+        return Page.read(studentsById, request, filter);
+    }
+    
+    @Override
+    public long count() {
+        return students.size();
+    }
+    
+    @Override
+    public List<Student> query(Query<Student> query) {
+        return planner.execute(query);
+    }
+    
+    @Override
+    public String explain(Query<Student> query) {
+        return planner.explain(query);
+    }
+    
     @Override
     public void save(Student student) throws IOException {
-        students.put(student.getId(), student);
+        mutationLogs.checkWritable();
+        requireKeys(student.getId(), student.getRegNo());
+        synchronized (registryLock) {
+            checkUnique(student.getId(), student.getRegNo(), student.getEmail());
+            Student previous = students.put(student.getId(), student);
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(student);
+            mutationLogs.publish(log -> log.studentSaved(student));
+        }
     }
     
     @Override
@@ -144,25 +518,147 @@ public class StudentService implements Persistable<Student>, Searchable<Student>
     
     @Override
     public void delete(String id) throws IOException {
-        students.remove(id);
+        mutationLogs.checkWritable();
+        synchronized (registryLock) {
+            Student removed = students.remove(id);
+            if (removed != null) {
+                unindex(removed);
+                mutationLogs.publish(log -> log.studentDeleted(id));
+            }
+        }
     }
     
     public boolean updateStudent(String id, String fullName, String email) {
-        Student student = students.get(id);
-        if (student != null) {
-            student.setFullName(fullName);
-            student.setEmail(email);
-            return true;
+        mutationLogs.checkWritable();
+        synchronized (registryLock) {
+            Student student = students.get(id);
+            if (student != null) {
+                checkUnique(id, student.getRegNo(), email);
+                student.setFullName(fullName);
+                student.setEmail(email);
+                mutationLogs.publish(log -> log.studentUpdated(id, fullName, email));
+                return true;
+            }
+            return false;
         }
-        return false;
     }
     
     public boolean deactivateStudent(String id) {
+        mutationLogs.checkWritable();
         Student student = students.get(id);
         if (student != null) {
-            student.setStatus(StudentStatus.INACTIVE);
+            entityLocks.lock(student);
+            try {
+                student.setStatus(StudentStatus.INACTIVE);
+            } finally {
+                entityLocks.unlock(student);
+            }
             return true;
         }
         return false;
     }
+    
+    // Index maintenance helpers
+    
+    // ID and registration number are unique keys, so both are required; same rules as addAll
+    private static void requireKeys(String id, String regNo) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("Missing student ID");
+        }
+        if (regNo == null || regNo.isEmpty()) {
+            throw new IllegalArgumentException("Missing registration number");
+        }
+    }
+    
+    private void checkUnique(String id, String regNo, String email) {
+        Student byRegNo = studentsByRegNo.get(regNo);
+        if (byRegNo != null && !byRegNo.getId().equals(id)) {
+            throw new IllegalArgumentException("Registration number " + regNo + " is already in use");
+        }
+        String emailKey = normalize(email);
+        Student byEmail = emailKey == null ? null : studentsByEmail.get(emailKey);
+        if (byEmail != null && !byEmail.getId().equals(id)) {
+            throw new IllegalArgumentException("Email " + email + " is already in use");
+        }
+    }
+    
+    private void index(Student student) {
+        studentsById.put(student.getId(), student);
+        studentsByRegNo.put(student.getRegNo(), student);
+        String email = normalize(student.getEmail());
+        if (email != null) {
+            studentsByEmail.put(email, student);
+        }
+        studentsByStatus.get(student.getStatus()).put(student.getId(), student);
+        addToSortedIndex(studentsByGPA, student.calculateGPA(), student);
+        nameIndex.add(student);
+        if (student.getStatus() == StudentStatus.ACTIVE) {
+            addToAggregates(student.calculateGPA());
+        }
+        student.setChangeListener(indexUpdater);
+        version.incrementAndGet();
+    }
+    
+    // Takes the student's stripe so no grade or status change lands between reading its GPA
+    // and detaching the listener; registry lock first, then stripe, as everywhere else
+    private void unindex(Student student) {
+        entityLocks.lock(student);
+        try {
+            student.setChangeListener(null);
+            studentsById.remove(student.getId(), student);
+            studentsByRegNo.remove(student.getRegNo(), student);
+            String email = normalize(student.getEmail());
+            if (email != null) {
+                studentsByEmail.remove(email, student);
+            }
+            studentsByStatus.get(student.getStatus()).remove(student.getId(), student);
+            removeFromSortedIndex(studentsByGPA, student.calculateGPA(), student);
+            nameIndex.remove(student, student.getFullName());
+            if (student.getStatus() == StudentStatus.ACTIVE) {
+                removeFromAggregates(student.calculateGPA());
+            }
+        } finally {
+            entityLocks.unlock(student);
+        }
+        version.incrementAndGet();
+    }
+    
+    private static <K> void addToSortedIndex(NavigableMap<K, Set<Student>> index, K key, Student student) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(student);
+    }
+    
+    private static <K> void removeFromSortedIndex(NavigableMap<K, Set<Student>> index, K key, Student student) {
+        Set<Student> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(student);
+        }
+    }
+    
+    private static Collection<Student> single(Student student) {
+        return student == null ? List.of() : List.of(student);
+    }
+    
+    private void addToAggregates(double gpa) {
+        synchronized (aggregateLock) {
+            activeCount++;
+            activeGPATotal += gpa;
+            activeGPADistribution[Student.GPAStatistics.bandOf(gpa)]++;
+        }
+    }
+    
+    private void removeFromAggregates(double gpa) {
+        synchronized (aggregateLock) {
+            activeCount--;
+            activeGPATotal -= gpa;
+            activeGPADistribution[Student.GPAStatistics.bandOf(gpa)]--;
+            if (activeCount == 0) {
+                activeGPATotal = 0.0; // drop accumulated rounding error
+            }
+        }
+    }
+    
+    // Email index key; null for a missing or blank email, which is neither indexed nor unique
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : value.toLowerCase(Locale.ROOT);
+    }
 }
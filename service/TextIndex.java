@@ -0,0 +1,223 @@
+package edu.ccrm.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+// Inverted index from lower-case word tokens to entities, for partial-name search.
+//
+// Tokens live in a sorted map, so the entities for a prefix are one subMap away. A query
+// matches entities containing every query word, where the last word may be a prefix of a
+// token (typeahead). Results are ranked by exact word hits, then by whether the text starts
+// with the query, then by shorter text, then by key.
+//
+// A single-word query ranks at most max(limit * 8, 64) of the entities it matches, taken in
+// token order, so a short prefix over a large index costs the same as a long one. The
+// entities whose word equals the query come first in that order and beat the rest, but once
+// more entities match than that, the shortest texts among them may not be visited and the
+// ranking is approximate. Queries of several words rank every match.
+public class TextIndex<T> {
+    private static final int PREFIX_FILTER_WORDS = 16;
+    
+    private final Function<T, String> text;
+    private final Function<T, String> key;
+    
+    // Emptied postings are kept rather than removed, as ConcurrentSkipListMap.compute is not
+    // atomic; the vocabulary only grows with distinct words ever indexed
+    private final NavigableMap<String, Set<T>> postings = new ConcurrentSkipListMap<>();
+    
+    private static class Hit<T> {
+        final T entity;
+        final int score;
+        final String text;
+        final String key;
+        
+        Hit(T entity, int score, String text, String key) {
+            this.entity = entity;
+            this.score = score;
+            this.text = text;
+            this.key = key;
+        }
+    }
+    
+    // Best first
+    private final Comparator<Hit<T>> ranking = Comparator.<Hit<T>>comparingInt(hit -> hit.score).reversed()
+        .thenComparingInt(hit -> hit.text.length())
+        .thenComparing(hit -> hit.key);
+    
+    public TextIndex(Function<T, String> text, Function<T, String> key) {
+        this.text = text;
+        this.key = key;
+    }
+    
+    public void add(T entity) {
+        for (String token : tokenize(text.apply(entity))) {
+            postings.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(entity);
+        }
+    }
+    
+    // Removes the entity as indexed under the given text, which may be its previous value
+    public void remove(T entity, String indexedText) {
+        for (String token : tokenize(indexedText)) {
+            Set<T> entities = postings.get(token);
+            if (entities != null) {
+                entities.remove(entity);
+            }
+        }
+    }
+    
+    public void update(T entity, String oldText) {
+        remove(entity, oldText);
+        add(entity);
+    }
+    
+    public List<T> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        String normalizedQuery = String.join(" ", terms);
+        List<String> exactTerms = terms.subList(0, terms.size() - 1);
+        String prefix = terms.get(terms.size() - 1);
+        
+        // Drive from the rarest exact word; with none, from the prefix range itself
+        List<Set<T>> exactPostings = new ArrayList<>(exactTerms.size());
+        Set<T> driver = null;
+        for (String term : exactTerms) {
+            Set<T> entities = postings.getOrDefault(term, Collections.emptySet());
+            exactPostings.add(entities);
+            if (driver == null || entities.size() < driver.size()) {
+                driver = entities;
+            }
+        }
+        
+        // Bounded heap with the worst kept hit on top
+        PriorityQueue<Hit<T>> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+        if (driver != null) {
+            // Set lookups are far cheaper than re-tokenizing, so reject on those first; the
+            // prefix check is only worth it while the prefix covers a handful of words
+            Collection<Set<T>> prefixPostings = prefixRange(prefix).values();
+            if (exceeds(prefixPostings, PREFIX_FILTER_WORDS)) {
+                prefixPostings = null;
+            }
+            candidates:
+            for (T entity : driver) {
+                for (Set<T> entities : exactPostings) {
+                    if (entities != driver && !entities.contains(entity)) {
+                        continue candidates;
+                    }
+                }
+                if (prefixPostings != null && !containsAny(prefixPostings, entity)) {
+                    continue;
+                }
+                offer(best, entity, exactTerms, prefix, normalizedQuery, limit);
+            }
+        } else {
+            // Single-word typeahead: tokens equal to the prefix sort first, so stop once enough
+            // candidates have been ranked instead of visiting every entity with this prefix;
+            // see the class comment for what that costs the ranking
+            int budget = Math.max(limit * 8, 64);
+            Set<T> seen = new HashSet<>();
+            scan:
+            for (Set<T> entities : prefixRange(prefix).values()) {
+                for (T entity : entities) {
+                    if (seen.add(entity)) {
+                        offer(best, entity, exactTerms, prefix, normalizedQuery, limit);
+                        if (seen.size() >= budget) {
+                            break scan;
+                        }
+                    }
+                }
+            }
+        }
+        
+        List<Hit<T>> hits = new ArrayList<>(best);
+        hits.sort(ranking);
+        List<T> results = new ArrayList<>(hits.size());
+        for (Hit<T> hit : hits) {
+            results.add(hit.entity);
+        }
+        return results;
+    }
+    
+    private void offer(PriorityQueue<Hit<T>> best, T entity, List<String> exactTerms, String prefix,
+                       String normalizedQuery, int limit) {
+        String entityText = text.apply(entity);
+        List<String> tokens = tokenize(entityText);
+        
+        // Re-checked against the current text, so a concurrent rename cannot yield a stale hit
+        int score = 0;
+        for (String term : exactTerms) {
+            if (!tokens.contains(term)) {
+                return;
+            }
+            score += 2;
+        }
+        int prefixScore = 0;
+        for (String token : tokens) {
+            if (token.equals(prefix)) {
+                prefixScore = 2;
+                break;
+            }
+            if (token.startsWith(prefix)) {
+                prefixScore = 1;
+            }
+        }
+        if (prefixScore == 0) {
+            return;
+        }
+        score += prefixScore;
+        String normalizedText = String.join(" ", tokens);
+        if (normalizedText.startsWith(normalizedQuery)) {
+            score++;
+        }
+        
+        best.add(new Hit<>(entity, score, normalizedText, key.apply(entity)));
+        if (best.size() > limit) {
+            best.poll();
+        }
+    }
+    
+    // size() on a skip-list range walks all of it; count only as far as the limit
+    private static boolean exceeds(Collection<?> items, int limit) {
+        int count = 0;
+        for (Object ignored : items) {
+            if (++count > limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static <T> boolean containsAny(Collection<Set<T>> sets, T entity) {
+        for (Set<T> entities : sets) {
+            if (entities.contains(entity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private NavigableMap<String, Set<T>> prefixRange(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+    
+    static List<String> tokenize(String value) {
+        List<String> tokens = new ArrayList<>(4);
+        if (value == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            boolean wordChar = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(value.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
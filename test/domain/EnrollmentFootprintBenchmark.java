@@ -0,0 +1,105 @@
+package edu.ccrm.domain;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+
+import static edu.ccrm.util.Checks.*;
+
+// Heap cost of enrollments, before and after the move to dictionary ids. "Before" rebuilds the
+// old layout next to the same students and courses: a HashSet<String> of course codes and a
+// HashMap<String, Grade> per student, and a HashSet<String> of student ids per course. "After"
+// enrolls and grades through Student and Course, which now keep sorted int ids and byte grade
+// ordinals. Each side reports the retained heap growth per enrollment, measured after full GCs,
+// and the time to enroll and grade.
+// Run: java -Xmx2g -cp <classes> edu.ccrm.domain.EnrollmentFootprintBenchmark [students] [coursesEach]
+public class EnrollmentFootprintBenchmark {
+    private static final int COURSES = 400;
+    
+    // The pre-dictionary enrollment storage
+    private static final class LegacyEnrollments {
+        final Map<String, Set<String>> coursesByStudent = new HashMap<>();
+        final Map<String, Map<String, Grade>> gradesByStudent = new HashMap<>();
+        final Map<String, Set<String>> studentsByCourse = new HashMap<>();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int coursesEach = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        long enrollments = (long) studentCount * coursesEach;
+        System.out.printf("%,d students taking %d of %d courses (%,d enrollments)%n",
+            studentCount, coursesEach, COURSES, enrollments);
+        
+        // Created before either measurement, so neither side is charged for the entities themselves
+        List<Course> courses = new ArrayList<>(COURSES);
+        for (int i = 0; i < COURSES; i++) {
+            courses.add(new Course.Builder("CS" + (1000 + i), "Course " + i, 3).build());
+        }
+        List<Student> students = new ArrayList<>(studentCount);
+        for (int i = 0; i < studentCount; i++) {
+            students.add(new Student("S" + i, "R" + i, "Student " + i, "s" + i + "@x"));
+        }
+        Grade[] grades = Grade.values();
+        
+        long baseline = usedHeapAfterGc();
+        long start = System.nanoTime();
+        LegacyEnrollments legacy = new LegacyEnrollments();
+        for (int s = 0; s < studentCount; s++) {
+            String studentId = students.get(s).getId();
+            Set<String> enrolled = new HashSet<>();
+            Map<String, Grade> graded = new HashMap<>();
+            for (int c = 0; c < coursesEach; c++) {
+                String code = courses.get(courseFor(s, c)).getCode();
+                enrolled.add(code);
+                graded.put(code, grades[(s + c) % grades.length]);
+                legacy.studentsByCourse.computeIfAbsent(code, key -> new HashSet<>()).add(studentId);
+            }
+            legacy.coursesByStudent.put(studentId, enrolled);
+            legacy.gradesByStudent.put(studentId, graded);
+        }
+        double legacySeconds = (System.nanoTime() - start) / 1e9;
+        long legacyBytes = usedHeapAfterGc() - baseline;
+        checkEquals(studentCount, legacy.coursesByStudent.size(), "legacy students");
+        legacy = null;
+        
+        baseline = usedHeapAfterGc();
+        start = System.nanoTime();
+        for (int s = 0; s < studentCount; s++) {
+            Student student = students.get(s);
+            for (int c = 0; c < coursesEach; c++) {
+                Course course = courses.get(courseFor(s, c));
+                student.enrollInCourse(course.getCode());
+                student.recordGrade(course.getCode(), grades[(s + c) % grades.length]);
+                course.enrollStudent(student.getId());
+            }
+        }
+        double compactSeconds = (System.nanoTime() - start) / 1e9;
+        long compactBytes = usedHeapAfterGc() - baseline;
+        checkEquals(coursesEach, students.get(studentCount - 1).getEnrolledCourseCount(), "compact enrollments");
+        
+        report("before (HashSet/HashMap)", legacyBytes, enrollments, legacySeconds);
+        report("after (int ids, byte grades)", compactBytes, enrollments, compactSeconds);
+        System.out.printf("Footprint ratio: %.1fx smaller%n", (double) legacyBytes / compactBytes);
+    }
+    
+    // Spreads each student's courses over the catalog without repeats
+    private static int courseFor(int student, int index) {
+        return (student * 7 + index * 9) % COURSES;
+    }
+    
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+    
+    private static void report(String label, long bytes, long enrollments, double seconds) {
+        System.out.printf("%-30s %8.1f MB %6.1f bytes/enrollment %6.2f s to enroll and grade%n",
+            label, bytes / 1e6, (double) bytes / enrollments, seconds);
+    }
+}
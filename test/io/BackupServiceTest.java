@@ -0,0 +1,203 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+import static edu.ccrm.util.Checks.*;
+
+// Incremental backups: a backup after a few changes writes only those changes, including
+// ones made through an entity's setters, deletions survive a restore, the chain is restarted
+// once it reaches its layer limit, and a new process carries on with the chain.
+// Run: java -cp <classes> edu.ccrm.io.BackupServiceTest
+public class BackupServiceTest {
+    private static final int STUDENTS = 500;
+    
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("ccrm-backup-test");
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        BackupService backups = new BackupService(students, courses, dir, 3);
+        students.addMutationLog(backups);
+        courses.addMutationLog(backups);
+        
+        courses.addCourse("CS101", "Intro", 3, "Dr A", Semester.FALL, "CS");
+        courses.addCourse("MA201", "Calculus", 4, "Dr B", Semester.SPRING, "MA");
+        for (int i = 0; i < STUDENTS; i++) {
+            students.addStudent("S" + i, "R" + i, "Student " + i, "s" + i + "@x");
+        }
+        students.enrollStudentInCourse("S1", "CS101", courses);
+        students.recordGrade("S1", "CS101", Grade.A);
+        
+        BackupService.BackupResult first = backups.createBackup();
+        check(first.isFull(), "first backup of an instance is full");
+        checkEquals(STUDENTS + 2, first.getChangedEntities(), "records in the full backup");
+        
+        // Three changed students and a deleted one: only those four are written
+        Thread.sleep(2);
+        students.updateStudent("S2", "Renamed", "s2@x");
+        students.enrollStudentInCourse("S3", "MA201", courses);
+        students.delete("S4");
+        BackupService.BackupResult second = backups.createBackup();
+        check(!second.isFull(), "second backup is incremental");
+        checkEquals(4, second.getChangedEntities(), "changed records: S2, S3, S4 and MA201");
+        checkEquals(3, second.getLinkedFiles(), "layer 0 files shared with the first backup");
+        check(second.getBytesWritten() < first.getBytesWritten() / 20,
+            "incremental backup wrote " + second.getBytesWritten() + " bytes");
+        
+        String expected = describe(students, courses);
+        checkEquals(expected, restored(second.getFolder()), "state restored from the incremental backup");
+        
+        // Deleted and re-added under the same id: the newest row wins. The instructor is set
+        // on the course itself, which no service operation reports.
+        Thread.sleep(2);
+        students.delete("S5");
+        students.addStudent("S5", "R5", "Back Again", "s5@x");
+        courses.findById("MA201").setInstructor("Dr C");
+        BackupService.BackupResult third = backups.createBackup();
+        check(!third.isFull(), "third backup is incremental");
+        checkEquals(2, third.getChangedEntities(), "changed records: S5 and MA201");
+        checkEquals(6, third.getLinkedFiles(), "two earlier layers shared");
+        checkEquals(describe(students, courses), restored(third.getFolder()), "state after delete and re-add");
+        
+        // Layer limit reached: the chain starts over
+        Thread.sleep(2);
+        students.deactivateStudent("S6");
+        BackupService.BackupResult fourth = backups.createBackup();
+        check(fourth.isFull(), "backup after the layer limit is full");
+        checkEquals(describe(students, courses), restored(fourth.getFolder()), "state from the new full backup");
+        
+        // Earlier folders are unaffected by later backups
+        checkEquals(expected, restored(second.getFolder()), "older backup still restores its own state");
+        
+        damagedRowsAreReported(dir, fourth.getFolder());
+        chainCarriesOnAcrossProcesses(Files.createTempDirectory("ccrm-backup-restart"));
+        System.out.println("BackupServiceTest passed");
+    }
+    
+    // Copies a backup (its files are hard-linked to others), damages it and checks that every
+    // damaged row comes back as a rejection
+    private static void damagedRowsAreReported(Path dir, Path folder) throws Exception {
+        Path copy = Files.createDirectories(dir.resolve("damaged").resolve(folder.getFileName()));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path file : files) {
+                Files.copy(file, copy.resolve(file.getFileName()));
+            }
+        }
+        Path courseFile = copy.resolve("courses-00.csv");
+        Files.writeString(courseFile, Files.readString(courseFile)
+            .replace("MA201,Calculus,4", "MA201,Calculus,four"), StandardOpenOption.TRUNCATE_EXISTING);
+        Files.writeString(copy.resolve("students-00.csv"),
+            "S900,R900,Short Row\n"
+            + "S901,R901,Bad Grade,s901@x,ACTIVE,2024-01-01T00:00,CS101:Z\n"
+            + "S902,R1,Duplicate RegNo,s902@x,ACTIVE,2024-01-01T00:00,\n",
+            StandardOpenOption.APPEND);
+        
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        SnapshotService.RestoreResult result = new BackupService(students, courses, dir, 3).restore(copy);
+        
+        List<ImportResult.Rejection> courseRejections = result.getCourses().getRejections();
+        checkEquals(1, courseRejections.size(), "course rejections " + courseRejections);
+        check(courseRejections.get(0).getReason().contains("courses-00.csv"), "rejection names its file");
+        
+        // S3 is enrolled in MA201, which no longer loads
+        List<String> studentKeys = new ArrayList<>();
+        for (ImportResult.Rejection rejection : result.getStudents().getRejections()) {
+            studentKeys.add(rejection.getKey().split(",")[0]);
+        }
+        Collections.sort(studentKeys);
+        checkEquals(List.of("S3", "S900", "S901", "S902"), studentKeys, "student rejections");
+        // The roster lost S4 and gained S901
+        checkEquals(STUDENTS, result.getStudents().getAcceptedCount(), "students restored");
+        check(students.findById("S3") != null && students.findById("S901") != null,
+            "students with a dropped enrollment or grade are still restored");
+    }
+    
+    // A later process recovers the state from a snapshot with the backup service detached, as
+    // FileIOService.recover does, and its first backup only writes what changed after the
+    // last one, deletions included. Loading records it cannot account for starts over.
+    private static void chainCarriesOnAcrossProcesses(Path dir) throws Exception {
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        BackupService backups = attach(new BackupService(students, courses, dir, 8), students, courses);
+        courses.addCourse("CS101", "Intro", 3, "Dr A", Semester.FALL, "CS");
+        for (int i = 0; i < STUDENTS; i++) {
+            students.addStudent("S" + i, "R" + i, "Student " + i, "s" + i + "@x");
+        }
+        check(backups.createBackup().isFull(), "first backup in the directory is full");
+        
+        // Changed after the backup, before the process ends
+        Thread.sleep(2);
+        students.updateStudent("S1", "Renamed", "s1@x");
+        students.delete("S2");
+        Path snapshot = dir.resolve("ccrm.snapshot");
+        new SnapshotService(students, courses).save(snapshot);
+        
+        StudentService nextStudents = new StudentService();
+        CourseService nextCourses = new CourseService();
+        new SnapshotService(nextStudents, nextCourses).restore(snapshot);
+        BackupService next = attach(new BackupService(nextStudents, nextCourses, dir, 8), nextStudents, nextCourses);
+        Thread.sleep(2);
+        nextStudents.findById("S3").setStatus(StudentStatus.GRADUATED);
+        BackupService.BackupResult carried = next.createBackup();
+        check(!carried.isFull(), "first backup of the next process is incremental");
+        checkEquals(3, carried.getChangedEntities(), "changed records: S1, S2 and S3");
+        checkEquals(describe(nextStudents, nextCourses), restored(carried.getFolder()),
+            "state restored from the carried-on chain");
+        
+        // This time the snapshot is loaded with the backup service attached, as a restore
+        // from the menu would: the old stamps cannot be told from unchanged records
+        StudentService reloadedStudents = new StudentService();
+        CourseService reloadedCourses = new CourseService();
+        BackupService reloaded = attach(new BackupService(reloadedStudents, reloadedCourses, dir, 8),
+            reloadedStudents, reloadedCourses);
+        new SnapshotService(reloadedStudents, reloadedCourses).restore(snapshot);
+        check(!Files.exists(dir.resolve("BASE")), "a later process is not pointed at the chain");
+        check(reloaded.createBackup().isFull(), "backup after loading older records is full");
+    }
+    
+    private static BackupService attach(BackupService backups, StudentService students, CourseService courses) {
+        students.addMutationLog(backups);
+        courses.addMutationLog(backups);
+        return backups;
+    }
+    
+    // Restores through a scratch directory, so the chain's own BASE file is left alone
+    private static String restored(Path folder) throws Exception {
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        SnapshotService.RestoreResult result = new BackupService(students, courses,
+            Files.createTempDirectory("ccrm-restore"), 3).restore(folder);
+        checkEquals(0, result.getStudents().getRejectedCount() + result.getCourses().getRejectedCount(),
+            "rejected rows restoring " + folder.getFileName());
+        return describe(students, courses);
+    }
+    
+    private static String describe(StudentService students, CourseService courses) {
+        StringBuilder text = new StringBuilder();
+        for (Student student : sorted(students.findAll(), Student::getId)) {
+            text.append(student.getId()).append('|').append(student.getRegNo()).append('|')
+                .append(student.getFullName()).append('|').append(student.getEmail()).append('|')
+                .append(student.getStatus()).append('|').append(new TreeSet<>(student.getEnrolledCourses()))
+                .append('|').append(new TreeMap<>(student.getCourseGrades())).append('|')
+                .append(student.getLastUpdated()).append('\n');
+        }
+        for (Course course : sorted(courses.findAll(), Course::getCode)) {
+            text.append(course.getCode()).append('|').append(course.getTitle()).append('|')
+                .append(course.getInstructor()).append('|').append(course.getCredits()).append('|')
+                .append(course.getSemester()).append('|').append(course.getDepartment()).append('|')
+                .append(course.getStatus()).append('|').append(new TreeSet<>(course.getEnrolledStudents()))
+                .append('|').append(course.getLastUpdated()).append('\n');
+        }
+        return text.toString();
+    }
+    
+    private static <T> List<T> sorted(List<T> items, Function<T, String> key) {
+        items.sort(Comparator.comparing(key));
+        return items;
+    }
+}
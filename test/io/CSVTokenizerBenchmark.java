@@ -0,0 +1,112 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Semester;
+
+import com.sun.management.ThreadMXBean;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static edu.ccrm.util.Checks.*;
+
+// Course-file parsing throughput: CSVTokenizer against the line.split(",") parsing the importer
+// used before it. Both read the same in-memory file and decode the same six course fields, so
+// the difference is the tokenizer itself; file I/O is left out. Reports rows per second, MB/s
+// and bytes allocated per row (measured on the calling thread).
+// Run: java -Xms1g -cp <classes> edu.ccrm.io.CSVTokenizerBenchmark [rows]
+public class CSVTokenizerBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    
+    private interface Parser {
+        long parse(byte[] file) throws IOException;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        byte[] file = courseFile(rows);
+        checkEquals(parseWithSplit(file), parseWithTokenizer(file), "both parsers read the same values");
+        
+        System.out.printf("%,d rows, %.1f MB%n", rows, file.length / 1e6);
+        double split = measure("String.split", file, rows, CSVTokenizerBenchmark::parseWithSplit);
+        double tokenizer = measure("CSVTokenizer", file, rows, CSVTokenizerBenchmark::parseWithTokenizer);
+        System.out.printf("Speedup: %.2fx%n", tokenizer / split);
+    }
+    
+    private static byte[] courseFile(int rows) {
+        StringBuilder csv = new StringBuilder(rows * 48);
+        csv.append("Code,Title,Credits,Instructor,Semester,Department\n");
+        Semester[] semesters = Semester.values();
+        for (int i = 0; i < rows; i++) {
+            csv.append("CS").append(10_000 + i).append(",Course Title ").append(i).append(',')
+                .append(1 + i % 4).append(",Dr Instructor ").append(i % 500).append(',')
+                .append(semesters[i % semesters.length]).append(",Department ").append(i % 40).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    // The pre-tokenizer import: decode lines, split, trim, parse
+    private static long parseWithSplit(byte[] file) throws IOException {
+        long checksum = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(file), StandardCharsets.UTF_8))) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length < 6) {
+                    continue;
+                }
+                checksum += checksum(parts[0].trim(), parts[1].trim(), Integer.parseInt(parts[2].trim()),
+                    parts[3].trim(), Semester.valueOf(parts[4].trim().toUpperCase()), parts[5].trim());
+            }
+        }
+        return checksum;
+    }
+    
+    // The importer's parser: fields are decoded straight from the bytes
+    private static long parseWithTokenizer(byte[] file) {
+        long checksum = 0;
+        CSVTokenizer tokenizer = new CSVTokenizer(ByteBuffer.wrap(file));
+        tokenizer.nextRecord(); // header
+        while (tokenizer.nextRecord()) {
+            if (tokenizer.fieldCount() < 6) {
+                continue;
+            }
+            checksum += checksum(tokenizer.field(0), tokenizer.field(1), tokenizer.intField(2),
+                tokenizer.field(3), tokenizer.enumField(4, Semester.class), tokenizer.field(5));
+        }
+        return checksum;
+    }
+    
+    // Keeps every decoded value live, so neither parser can skip work
+    private static long checksum(String code, String title, int credits, String instructor,
+                                 Semester semester, String department) {
+        return code.hashCode() + 31L * title.length() + credits + instructor.length()
+            + semester.ordinal() + department.hashCode();
+    }
+    
+    private static double measure(String name, byte[] file, int rows, Parser parser) throws IOException {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            parser.parse(file);
+        }
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            parser.parse(file);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        
+        long totalRows = (long) rows * MEASURED_ROUNDS;
+        double rowsPerSecond = totalRows / seconds;
+        System.out.printf("%-13s %,12.0f rows/s %8.1f MB/s %8.0f bytes allocated/row%n", name, rowsPerSecond,
+            (double) file.length * MEASURED_ROUNDS / 1e6 / seconds, (double) allocated / totalRows);
+        return rowsPerSecond;
+    }
+}
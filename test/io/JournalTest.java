@@ -0,0 +1,187 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+import static edu.ccrm.util.Checks.*;
+
+// Crash recovery: torn tails, corrupt records, replay over a snapshot that already holds
+// part of the journal, and appends after the disk has failed.
+// Run: java -cp <classes> edu.ccrm.io.JournalTest
+public class JournalTest {
+    private static final int HEADER_SIZE = 8;
+    
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("ccrm-journal-test");
+        tornTailIsTruncated(dir.resolve("torn-header.journal"), 3);
+        tornTailIsTruncated(dir.resolve("torn-payload.journal"), HEADER_SIZE + 2);
+        corruptRecordStopsReplay(dir.resolve("corrupt.journal"));
+        replayOverPartialSnapshot(dir.resolve("partial.journal"));
+        appendFailsAfterWriteError();
+        System.out.println("JournalTest passed");
+    }
+    
+    // Five records: one course and four students
+    private static void writeFiveRecords(Path file) throws IOException {
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        try (Journal journal = new Journal(file, 5)) {
+            students.addMutationLog(journal);
+            courses.addMutationLog(journal);
+            courses.addCourse("CS101", "Intro", 3, "Dr A", Semester.FALL, "CS");
+            for (int i = 1; i <= 4; i++) {
+                students.addStudent("S" + i, "R" + i, "Student " + i, "s" + i + "@x");
+            }
+        }
+    }
+    
+    // File offsets where each record starts, plus the end of the last one
+    private static List<Long> recordOffsets(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        List<Long> offsets = new ArrayList<>();
+        long position = 0;
+        while (position < bytes.limit()) {
+            offsets.add(position);
+            position += HEADER_SIZE + bytes.getInt((int) position);
+        }
+        offsets.add(position);
+        return offsets;
+    }
+    
+    private static void tornTailIsTruncated(Path file, int partialBytes) throws IOException {
+        writeFiveRecords(file);
+        List<Long> offsets = recordOffsets(file);
+        long lastStart = offsets.get(4);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(lastStart + partialBytes);
+        }
+        
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        checkEquals(4, Journal.replay(file, students, courses), "records replayed before a torn tail");
+        checkEquals(3L, students.count(), "students before the torn record");
+        check(students.findById("S4") == null, "torn record not applied");
+        checkEquals(lastStart, Files.size(file), "torn tail truncated");
+    }
+    
+    private static void corruptRecordStopsReplay(Path file) throws IOException {
+        writeFiveRecords(file);
+        List<Long> offsets = recordOffsets(file);
+        long thirdStart = offsets.get(2);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[(int) thirdStart + HEADER_SIZE + 3] ^= 0x5A;
+        Files.write(file, bytes);
+        
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        checkEquals(2, Journal.replay(file, students, courses), "records replayed before a CRC mismatch");
+        check(students.findById("S1") != null && students.findById("S2") == null,
+            "only records before the corrupt one applied");
+        checkEquals(thirdStart, Files.size(file), "corrupt record and everything after it truncated");
+    }
+    
+    // The snapshot is taken halfway through the journal, as when a crash hits between a
+    // snapshot and the next rotation; replaying the whole journal over it must converge
+    private static void replayOverPartialSnapshot(Path file) throws IOException {
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        byte[] snapshot;
+        try (Journal journal = new Journal(file, 5)) {
+            students.addMutationLog(journal);
+            courses.addMutationLog(journal);
+            courses.addCourse("CS101", "Intro", 3, "Dr A", Semester.FALL, "CS");
+            courses.addCourse("MA201", "Calculus", 4, "Dr B", Semester.SPRING, "MA");
+            students.addStudent("S1", "R1", "Ann", "ann@x");
+            students.addStudent("S2", "R2", "Bob", "bob@x");
+            enroll(students, courses, "S1", "CS101");
+            students.recordGrade("S1", "CS101", Grade.B);
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new SnapshotService(students, courses).write(Channels.newChannel(bytes));
+            snapshot = bytes.toByteArray();
+            
+            students.recordGrade("S1", "CS101", Grade.A);
+            enroll(students, courses, "S1", "MA201");
+            enroll(students, courses, "S2", "CS101");
+            students.unenrollStudentFromCourse("S2", "CS101", courses);
+            students.updateStudent("S2", "Bob Jones", "bob.jones@x");
+            students.deactivateStudent("S2");
+            students.addStudent("S3", "R3", "Cy", "cy@x");
+            courses.updateCourse("MA201", "Calculus I", "Dr C");
+            courses.deactivateCourse("CS101");
+        }
+        
+        StudentService restoredStudents = new StudentService();
+        CourseService restoredCourses = new CourseService();
+        new SnapshotService(restoredStudents, restoredCourses)
+            .read(Channels.newChannel(new ByteArrayInputStream(snapshot)));
+        Journal.replay(file, restoredStudents, restoredCourses);
+        checkEquals(describe(students, courses), describe(restoredStudents, restoredCourses),
+            "state after replaying the journal over a partial snapshot");
+    }
+    
+    private static void enroll(StudentService students, CourseService courses, String studentId, String code) {
+        try {
+            students.enrollStudentInCourse(studentId, code, courses);
+        } catch (Exception e) {
+            throw new AssertionError("enrollment failed", e);
+        }
+    }
+    
+    private static String describe(StudentService students, CourseService courses) {
+        StringBuilder text = new StringBuilder();
+        for (Student student : sorted(students.findAll(), Student::getId)) {
+            text.append(student.getId()).append('|').append(student.getRegNo()).append('|')
+                .append(student.getFullName()).append('|').append(student.getEmail()).append('|')
+                .append(student.getStatus()).append('|').append(new TreeSet<>(student.getEnrolledCourses()))
+                .append('|').append(new TreeMap<>(student.getCourseGrades())).append('\n');
+        }
+        for (Course course : sorted(courses.findAll(), Course::getCode)) {
+            text.append(course.getCode()).append('|').append(course.getTitle()).append('|')
+                .append(course.getInstructor()).append('|').append(course.getCredits()).append('|')
+                .append(course.getSemester()).append('|').append(course.getDepartment()).append('|')
+                .append(course.getStatus()).append('|').append(new TreeSet<>(course.getEnrolledStudents()))
+                .append('\n');
+        }
+        return text.toString();
+    }
+    
+    private static <T> List<T> sorted(List<T> items, Function<T, String> key) {
+        items.sort(Comparator.comparing(key));
+        return items;
+    }
+    
+    // /dev/full accepts the open but fails every write, like a disk that has filled up
+    private static void appendFailsAfterWriteError() throws Exception {
+        Path full = Paths.get("/dev/full");
+        if (!Files.isWritable(full)) {
+            System.out.println("Skipping write-failure check: /dev/full is not available");
+            return;
+        }
+        StudentService students = new StudentService();
+        Journal journal = new Journal(full, 1);
+        students.addMutationLog(journal);
+        students.addStudent("S0", "R0", "First", "first@x");
+        checkThrows(IOException.class, journal::flush, "flush reports the write failure");
+        
+        UncheckedIOException failure = checkThrows(UncheckedIOException.class,
+            () -> students.addStudent("S1", "R1", "Second", "second@x"), "append after a failed write");
+        check(failure.getMessage().contains("not saved to disk"), "failure message: " + failure.getMessage());
+        check(students.findById("S1") == null, "refused change is not applied in memory");
+        checkThrows(UncheckedIOException.class, () -> students.updateStudent("S0", "Renamed", null),
+            "update after a failed write");
+        checkEquals("First", students.findById("S0").getFullName(), "refused update is not applied");
+        checkThrows(IOException.class, journal::close, "close reports the write failure");
+    }
+}
@@ -0,0 +1,65 @@
+package edu.ccrm.io;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static edu.ccrm.util.Checks.*;
+
+// Chunked parsing must read exactly the records a single-threaded parse reads, wherever the
+// chunk boundaries fall: quoted line breaks, escaped quotes and stray quotes inside unquoted
+// fields included.
+// Run: java -cp <classes> edu.ccrm.io.ParallelCSVImporterTest
+public class ParallelCSVImporterTest {
+    private static final int ROWS = 5_000;
+    
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("ccrm-import-test");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            chunkedMatchesSingleChunk(dir.resolve("clean.csv"), pool, -1);
+            chunkedMatchesSingleChunk(dir.resolve("stray-quote.csv"), pool, 3);
+            chunkedMatchesSingleChunk(dir.resolve("stray-quotes.csv"), pool, 1);
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("ParallelCSVImporterTest passed");
+    }
+    
+    // Every row has a quoted title with a line break and an escaped quote; rows at multiples
+    // of strayEvery also carry a lone quote in the middle of an unquoted field
+    private static void chunkedMatchesSingleChunk(Path file, ForkJoinPool pool, int strayEvery) throws Exception {
+        StringBuilder csv = new StringBuilder("Code,Title,Instructor,Credits\n");
+        for (int i = 0; i < ROWS; i++) {
+            String instructor = strayEvery > 0 && i % strayEvery == 0 ? "5\" floppy" : "plain";
+            csv.append("CS").append(i).append(",\"Title ").append(i).append("\nsays \"\"hi\"\"\",")
+                .append(instructor).append(',').append(i % 4).append('\n');
+        }
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+        
+        List<String> single = parse(new ParallelCSVImporter(pool, 1024, Long.MAX_VALUE), file);
+        checkEquals(ROWS, single.size(), "rows read as one chunk");
+        checkEquals("CS1|Title 1\nsays \"hi\"|" + (strayEvery == 1 ? "5\" floppy" : "plain") + "|1",
+            single.get(1), "row with quoted line break");
+        
+        // Small chunks put boundaries all over the file
+        List<String> chunked = parse(new ParallelCSVImporter(pool, 1024, 0), file);
+        checkEquals(single, chunked, "chunked rows of " + file.getFileName());
+    }
+    
+    private static List<String> parse(ParallelCSVImporter importer, Path file) throws Exception {
+        List<String> rows = new ArrayList<>();
+        for (ParallelCSVImporter.Row<String> row : importer.parse(file, tokenizer -> {
+            StringJoiner fields = new StringJoiner("|");
+            for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                fields.add(tokenizer.field(i));
+            }
+            return fields.toString();
+        })) {
+            check(!row.isFailed(), "row failed: " + row.getError());
+            rows.add(row.getValue());
+        }
+        return rows;
+    }
+}
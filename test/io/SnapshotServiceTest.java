@@ -0,0 +1,112 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static edu.ccrm.util.Checks.*;
+
+// Run: java -cp <classes> edu.ccrm.io.SnapshotServiceTest
+public class SnapshotServiceTest {
+    private static final int FIRST_TAG = 1;
+    private static final int SECOND_TAG = 2;
+    
+    public static void main(String[] args) throws Exception {
+        for (int left = 0; left <= 5; left++) {
+            sectionEndingWithBytesLeft(left);
+        }
+        studentWithBufferSizedEmail();
+        timestampsSurviveRoundTrip();
+        System.out.println("SnapshotServiceTest passed");
+    }
+    
+    // Fills the writer's buffer so exactly `left` bytes remain when the first section ends;
+    // the second section must still be read back after it
+    private static void sectionEndingWithBytesLeft(int left) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotService.BlockWriter out = new SnapshotService.BlockWriter(Channels.newChannel(bytes));
+        out.beginSection(FIRST_TAG);
+        int payload = out.reserve(0).remaining() - left;
+        ByteBuffer buffer = out.reserve(payload);
+        for (int i = 0; i < payload; i++) {
+            buffer.put((byte) i);
+        }
+        checkEquals(left, buffer.remaining(), "bytes left before endSection");
+        out.endSection();
+        out.beginSection(SECOND_TAG);
+        out.reserve(4).putInt(42);
+        out.endSection();
+        out.beginSection(SnapshotService.SECTION_END);
+        out.flush();
+        
+        SnapshotService.BlockReader in = new SnapshotService.BlockReader(
+            Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        checkEquals(FIRST_TAG, in.nextSection(), "first section tag (" + left + " bytes left)");
+        int read = 0;
+        ByteBuffer block;
+        while ((block = in.nextBlock()) != null) {
+            while (block.hasRemaining()) {
+                checkEquals((byte) read++, block.get(), "payload byte " + (read - 1));
+            }
+        }
+        checkEquals(payload, read, "first section payload (" + left + " bytes left)");
+        checkEquals(SECOND_TAG, in.nextSection(), "second section tag (" + left + " bytes left)");
+        block = in.nextBlock();
+        check(block != null && block.getInt() == 42, "second section payload (" + left + " bytes left)");
+        check(in.nextBlock() == null, "second section end (" + left + " bytes left)");
+        checkEquals(SnapshotService.SECTION_END, in.nextSection(), "end marker (" + left + " bytes left)");
+    }
+    
+    // Emails around the size that used to leave the strings section 0-3 bytes short of a
+    // full buffer, which silently dropped every student on restore
+    private static void studentWithBufferSizedEmail() throws Exception {
+        for (int length = 1_048_530; length <= 1_048_565; length++) {
+            StudentService students = new StudentService();
+            students.addStudent("S1", "R1", "Big Email", "x".repeat(length));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new SnapshotService(students, new CourseService()).write(Channels.newChannel(bytes));
+            
+            StudentService restored = new StudentService();
+            new SnapshotService(restored, new CourseService())
+                .read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+            checkEquals(1L, restored.count(), "students restored with a " + length + "-character email");
+            checkEquals(length, restored.findById("S1").getEmail().length(), "email length restored");
+        }
+    }
+    
+    // Creation dates and last-change times come back as saved, not as the time of the restore
+    private static void timestampsSurviveRoundTrip() throws Exception {
+        LocalDateTime created = LocalDateTime.of(2021, 9, 1, 8, 30, 15, 123_456_789);
+        LocalDateTime changed = LocalDateTime.of(2023, 2, 14, 17, 5, 0, 42);
+        CourseService courses = new CourseService();
+        courses.addAll(List.of(new Course.Builder("CS101", "Intro", 3).createdDate(created).build()));
+        StudentService students = new StudentService();
+        Student student = new Student("S1", "R1", "Ann", "ann@x");
+        student.setCreatedDate(created.plusDays(1));
+        student.enrollInCourse("CS101");
+        courses.findById("CS101").enrollStudent("S1");
+        student.setLastUpdated(changed);
+        students.addAll(List.of(student));
+        courses.findById("CS101").setLastUpdated(changed.plusHours(1));
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new SnapshotService(students, courses).write(Channels.newChannel(bytes));
+        StudentService restoredStudents = new StudentService();
+        CourseService restoredCourses = new CourseService();
+        new SnapshotService(restoredStudents, restoredCourses)
+            .read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        
+        Course course = restoredCourses.findById("CS101");
+        checkEquals(created, course.getCreatedDate(), "course creation date");
+        checkEquals(changed.plusHours(1), course.getLastUpdated(), "course last update");
+        Student restored = restoredStudents.findById("S1");
+        checkEquals(created.plusDays(1), restored.getCreatedDate(), "student creation date");
+        checkEquals(changed, restored.getLastUpdated(), "student last update");
+    }
+}
@@ -0,0 +1,112 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+import java.util.*;
+
+import static edu.ccrm.util.Checks.*;
+
+// Speedup of the cohort analytics by pool size. Runs the CLI's full cohort report (course
+// counts, GPA statistics, enrolled credits by department) plus a GPA report on one large
+// roster at each parallelism, checks that every run gives the same figures as parallelism 1,
+// and reports the median time and the speedup over parallelism 1. Speedup is bounded by the
+// cores actually available, which is printed first.
+// Run: java -Xmx2g -cp <classes> edu.ccrm.service.AnalyticsEngineBenchmark [students] [parallelism,...]
+public class AnalyticsEngineBenchmark {
+    private static final int COURSES = 500;
+    private static final int DEPARTMENTS = 20;
+    private static final int COURSES_EACH = 5;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 7;
+    
+    public static void main(String[] args) throws Exception {
+        int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> levels = new ArrayList<>();
+        if (args.length > 1) {
+            for (String level : args[1].split(",")) {
+                levels.add(Integer.parseInt(level.trim()));
+            }
+        } else {
+            for (int level = 1; level < cores; level *= 2) {
+                levels.add(level);
+            }
+            levels.add(cores);
+        }
+        
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        populate(students, courses, studentCount);
+        System.out.printf("%,d students, %d courses, %d available cores%n", studentCount, COURSES, cores);
+        System.out.printf("%11s %10s %8s%n", "Parallelism", "Median ms", "Speedup");
+        
+        String expected = null;
+        double baseline = 0;
+        for (int parallelism : levels) {
+            try (AnalyticsEngine engine = new AnalyticsEngine(students, courses, parallelism)) {
+                for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                    runReports(engine);
+                }
+                long[] nanos = new long[MEASURED_ROUNDS];
+                for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    String figures = runReports(engine);
+                    nanos[round] = System.nanoTime() - start;
+                    if (expected == null) {
+                        expected = figures;
+                    }
+                    checkEquals(expected, figures, "figures at parallelism " + parallelism);
+                }
+                Arrays.sort(nanos);
+                double millis = nanos[MEASURED_ROUNDS / 2] / 1e6;
+                if (baseline == 0) {
+                    baseline = millis;
+                }
+                System.out.printf("%11d %10.1f %7.2fx%n", parallelism, millis, baseline / millis);
+            }
+        }
+    }
+    
+    // Every student takes COURSES_EACH graded courses, loaded in bulk as a restore would
+    private static void populate(StudentService students, CourseService courses, int studentCount) {
+        List<Course> catalog = new ArrayList<>(COURSES);
+        for (int i = 0; i < COURSES; i++) {
+            catalog.add(new Course.Builder("CS" + (1000 + i), "Course " + i, 2 + i % 3)
+                .semester(Semester.values()[i % Semester.values().length])
+                .department("Department " + i % DEPARTMENTS)
+                .build());
+        }
+        Grade[] grades = Grade.values();
+        List<Student> roster = new ArrayList<>(studentCount);
+        for (int s = 0; s < studentCount; s++) {
+            Student student = new Student("S" + s, "R" + s, "Student " + s, "s" + s + "@x");
+            for (int c = 0; c < COURSES_EACH; c++) {
+                Course course = catalog.get((s * 31 + c * 97) % COURSES);
+                student.enrollInCourse(course.getCode());
+                student.recordGrade(course.getCode(), grades[(s + c) % grades.length]);
+                course.enrollStudent(student.getId());
+            }
+            roster.add(student);
+        }
+        checkEquals(COURSES, courses.addAll(catalog).getAcceptedCount(), "courses loaded");
+        checkEquals(studentCount, students.addAll(roster).getAcceptedCount(), "students loaded");
+    }
+    
+    // The figures every run must agree on, as text
+    private static String runReports(AnalyticsEngine engine) {
+        Map<String, Long> courseCounts = new TreeMap<>(engine.courseCountByDepartment());
+        Student.GPAStatistics stats = engine.gpaStatistics();
+        Map<String, Long> credits = new TreeMap<>(engine.enrolledCreditsByDepartment());
+        GPAReport report = engine.gpaReport(10);
+        StringBuilder figures = new StringBuilder()
+            .append(courseCounts).append('\n')
+            .append(stats.getTotalStudents()).append(' ').append(stats.getAverageGPA()).append(' ')
+            .append(Arrays.toString(stats.getDistribution())).append('\n')
+            .append(credits).append('\n')
+            .append(report.getCount()).append(' ').append(report.getAverageGPA());
+        for (GPAReport.Ranked ranked : report.getTop()) {
+            figures.append(' ').append(ranked.getGPA());
+        }
+        return figures.toString();
+    }
+}
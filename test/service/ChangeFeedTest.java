@@ -0,0 +1,115 @@
+package edu.ccrm.service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static edu.ccrm.util.Checks.*;
+
+// ChangeFeed delivery: a BLOCK subscriber on a small ring sees every sequence once and in
+// order while many producers publish at once, an OVERWRITE subscriber that is lapped
+// accounts for every event it skipped, and closing the feed releases producers held back
+// by a BLOCK subscriber that stopped reading.
+// Run: java -cp <classes> edu.ccrm.service.ChangeFeedTest
+public class ChangeFeedTest {
+    private static final int PRODUCERS = 8;
+    private static final int EVENTS_PER_PRODUCER = 20_000;
+    
+    public static void main(String[] args) throws Exception {
+        blockSubscriberSeesEverySequence();
+        overwriteSubscriberCountsLostEvents();
+        closeReleasesBlockedProducers();
+        System.out.println("ChangeFeedTest passed");
+    }
+    
+    private static void blockSubscriberSeesEverySequence() throws Exception {
+        ChangeFeed feed = new ChangeFeed(64);
+        long total = (long) PRODUCERS * EVENTS_PER_PRODUCER;
+        List<ChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        feed.subscribe(ChangeFeed.OverflowPolicy.BLOCK, 16, batch -> {
+            received.addAll(batch);
+            if (received.size() == total) {
+                done.countDown();
+            }
+        });
+        
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; p++) {
+            String producer = "P" + p;
+            producers.submit(() -> {
+                for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                    feed.enrolled(producer, String.valueOf(i));
+                }
+            });
+        }
+        producers.shutdown();
+        check(producers.awaitTermination(60, TimeUnit.SECONDS), "producers finished");
+        check(done.await(60, TimeUnit.SECONDS), "subscriber received " + received.size() + " of " + total);
+        feed.close();
+        
+        // Sequences are dense and in order, and each producer's events keep their order
+        Map<String, Integer> nextByProducer = new HashMap<>();
+        for (int i = 0; i < received.size(); i++) {
+            ChangeEvent event = received.get(i);
+            checkEquals((long) i, event.getSequence(), "sequence at position " + i);
+            int expected = nextByProducer.getOrDefault(event.getStudentId(), 0);
+            checkEquals(String.valueOf(expected), event.getCourseCode(), "order of " + event.getStudentId());
+            nextByProducer.put(event.getStudentId(), expected + 1);
+        }
+        checkEquals(total, feed.getPublishedCount(), "published count");
+    }
+    
+    // The subscriber falls many laps behind, then drains: what it read plus what it lost is
+    // everything published, and what it read is the newest part of the feed, in order
+    private static void overwriteSubscriberCountsLostEvents() {
+        ChangeFeed feed = new ChangeFeed(16);
+        ChangeFeed.Subscription subscription = feed.subscribe(ChangeFeed.OverflowPolicy.OVERWRITE);
+        List<Long> read = new ArrayList<>();
+        int published = 0;
+        for (int round = 0; round < 50; round++) {
+            int burst = round % 5 == 0 ? 100 : 3;
+            for (int i = 0; i < burst; i++) {
+                feed.studentDeleted("S" + published++);
+            }
+            subscription.poll(round % 2 == 0 ? 2 : 64, event -> read.add(event.getSequence()));
+            check(subscription.getLostCount() >= 0, "lost count is never negative");
+        }
+        while (subscription.poll(64, event -> read.add(event.getSequence())) > 0) {
+            // drain
+        }
+        
+        checkEquals((long) published, read.size() + subscription.getLostCount(), "read plus lost");
+        for (int i = 1; i < read.size(); i++) {
+            check(read.get(i) > read.get(i - 1), "sequences increase: " + read.get(i - 1) + ", " + read.get(i));
+        }
+        checkEquals((long) published - 1, read.get(read.size() - 1), "last event read");
+        checkEquals(0L, subscription.getLag(), "nothing left to read");
+        check(subscription.getLostCount() > 0, "subscriber was lapped");
+    }
+    
+    private static void closeReleasesBlockedProducers() throws Exception {
+        ChangeFeed feed = new ChangeFeed(8);
+        ChangeFeed.Subscription stalled = feed.subscribe(ChangeFeed.OverflowPolicy.BLOCK);
+        ExecutorService producers = Executors.newFixedThreadPool(3);
+        CountDownLatch finished = new CountDownLatch(3);
+        for (int p = 0; p < 3; p++) {
+            producers.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    feed.studentDeleted("S" + i);
+                }
+                finished.countDown();
+            });
+        }
+        producers.shutdown();
+        
+        // The ring fills and every producer waits for the subscriber
+        check(!finished.await(200, TimeUnit.MILLISECONDS), "producers held back by the BLOCK subscriber");
+        long claimed = feed.getPublishedCount();
+        check(claimed > 8 && claimed <= 8 + 3, "each producer waits on one claimed sequence: " + claimed);
+        checkEquals(claimed, stalled.getLag(), "nothing consumed");
+        
+        feed.close();
+        check(finished.await(10, TimeUnit.SECONDS), "close released the producers");
+        checkEquals(300L, feed.getPublishedCount(), "every event published after close");
+    }
+}
@@ -0,0 +1,91 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+import java.util.*;
+
+import static edu.ccrm.util.Checks.*;
+
+// Access paths the planner picks for the service indexes, the explain output that shows
+// them, and results that list each entity once when OR branches or IN values overlap.
+// Run: java -cp <classes> edu.ccrm.service.QueryPlannerTest
+public class QueryPlannerTest {
+    public static void main(String[] args) throws Exception {
+        StudentService students = new StudentService();
+        students.addStudent("S1", "R1", "First", "a@x");
+        students.addStudent("S2", "R2", "Second", "");
+        students.addStudent("S3", "R3", "Third", "c@x");
+        CourseService courses = new CourseService();
+        courses.addCourse("CS101", "Intro", 3, "Dr A", Semester.FALL, "CS");
+        courses.addCourse("CS201", "Data", 4, "Dr A", Semester.SPRING, "CS");
+        courses.addCourse("MA101", "Calculus", 4, "Dr B", Semester.FALL, "MA");
+        
+        accessPaths(students, courses);
+        overlappingResultsAreDistinct(students, courses);
+        System.out.println("QueryPlannerTest passed");
+    }
+    
+    private static void accessPaths(StudentService students, CourseService courses) {
+        // AND drives from its cheapest indexed branch, here the single-row id lookup
+        checkEquals("Filter [status = ACTIVE AND id = S1]\n"
+                + "  IndexLookup students [id = S1] (~1 rows)\n",
+            students.explain(Query.and(List.of(
+                Query.eq(StudentService.Fields.STATUS, StudentStatus.ACTIVE),
+                Query.eq(StudentService.Fields.ID, "S1")))),
+            "AND plan");
+        
+        // OR unions its branches when each has an index
+        checkEquals("Filter [instructor = dr a OR semester = FALL]\n"
+                + "  Union (~4 rows)\n"
+                + "    IndexLookup coursesByInstructor [instructor = dr a] (~2 rows)\n"
+                + "    IndexLookup coursesBySemester [semester = FALL] (~2 rows)\n",
+            courses.explain(Query.or(List.of(
+                Query.eq(CourseService.Fields.INSTRUCTOR, "Dr A"),
+                Query.eq(CourseService.Fields.SEMESTER, Semester.FALL)))),
+            "OR plan");
+        
+        // An unindexed branch has to scan anyway, so the whole OR does
+        checkEquals("Filter [instructor = dr a OR title = calculus]\n"
+                + "  FullScan courses (~3 rows)\n",
+            courses.explain(Query.or(List.of(
+                Query.eq(CourseService.Fields.INSTRUCTOR, "Dr A"),
+                Query.eq(CourseService.Fields.TITLE, "Calculus")))),
+            "OR plan with an unindexed branch");
+        
+        // Ranges and IN on a sorted index read only the matching buckets
+        checkEquals("Filter [credits BETWEEN 4 AND 4]\n"
+                + "  RangeScan coursesByCredits [credits BETWEEN 4 AND 4] (~2 rows)\n",
+            courses.explain(Query.between(CourseService.Fields.CREDITS, 4, 4)), "range plan");
+        checkEquals("Filter [credits IN (3, 4)]\n"
+                + "  Union (~3 rows)\n"
+                + "    RangeScan coursesByCredits [credits = 3] (~1 rows)\n"
+                + "    RangeScan coursesByCredits [credits = 4] (~2 rows)\n",
+            courses.explain(Query.in(CourseService.Fields.CREDITS, List.of(3, 4))), "IN plan on a sorted index");
+    }
+    
+    private static void overlappingResultsAreDistinct(StudentService students, CourseService courses) {
+        // CS101 is matched by both branches
+        checkEquals(List.of("CS101", "CS201", "MA101"),
+            codes(courses.query(Query.or(List.of(
+                Query.eq(CourseService.Fields.INSTRUCTOR, "Dr A"),
+                Query.eq(CourseService.Fields.SEMESTER, Semester.FALL))))),
+            "OR result");
+        
+        // A blank email is looked up as every student, which overlaps the a@x bucket
+        List<String> ids = new ArrayList<>();
+        for (Student student : students.query(Query.in(StudentService.Fields.EMAIL, List.of("", "a@x")))) {
+            ids.add(student.getId());
+        }
+        Collections.sort(ids);
+        checkEquals(List.of("S1", "S2"), ids, "IN result over a blank email");
+    }
+    
+    private static List<String> codes(List<Course> found) {
+        List<String> codes = new ArrayList<>();
+        for (Course course : found) {
+            codes.add(course.getCode());
+        }
+        Collections.sort(codes);
+        return codes;
+    }
+}
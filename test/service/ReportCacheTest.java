@@ -0,0 +1,80 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.ccrm.util.Checks.*;
+
+// ReportCache hits while the version is unchanged and recomputes after a bump, starts over
+// when full, and never lets an older result replace a newer one. Through StudentService, a
+// cached GPA report follows every write, including a grade recorded on the entity directly.
+// Run: java -cp <classes> edu.ccrm.service.ReportCacheTest
+public class ReportCacheTest {
+    public static void main(String[] args) throws Exception {
+        versionStamps();
+        fullCacheStartsOver();
+        serviceReportsFollowWrites();
+        System.out.println("ReportCacheTest passed");
+    }
+    
+    private static void versionStamps() {
+        ReportCache cache = new ReportCache(8);
+        AtomicInteger computed = new AtomicInteger();
+        checkEquals(1, cache.get(List.of("report", 1), 5, computed::incrementAndGet), "first lookup computes");
+        checkEquals(1, cache.get(List.of("report", 1), 5, computed::incrementAndGet), "same version is a hit");
+        checkEquals(2, cache.get(List.of("report", 2), 5, computed::incrementAndGet), "parameters are part of the key");
+        checkEquals(3, cache.get(List.of("report", 1), 6, computed::incrementAndGet), "bumped version recomputes");
+        checkEquals(1L, cache.getHits(), "hits");
+        checkEquals(3L, cache.getMisses(), "misses");
+        
+        // A lookup that read an older version must not evict the newer result
+        checkEquals("old", cache.get(List.of("report", 1), 4, () -> "old"), "stale lookup gets its own result");
+        checkEquals(3, cache.get(List.of("report", 1), 6, computed::incrementAndGet), "newer result kept");
+    }
+    
+    private static void fullCacheStartsOver() {
+        ReportCache cache = new ReportCache(3);
+        for (int i = 0; i < 3; i++) {
+            cache.get(List.of("report", i), 1, () -> "value");
+        }
+        checkEquals(3, cache.size(), "cache filled");
+        cache.get(List.of("report", 0), 2, () -> "recomputed");
+        checkEquals(3, cache.size(), "replacing an existing key does not clear");
+        
+        cache.get(List.of("report", 3), 1, () -> "new");
+        checkEquals(1, cache.size(), "a new key in a full cache starts over");
+        checkEquals("new", cache.get(List.of("report", 3), 1, () -> "again"), "new entry kept");
+        AtomicInteger computed = new AtomicInteger();
+        cache.get(List.of("report", 1), 1, computed::incrementAndGet);
+        checkEquals(1, computed.get(), "dropped entry recomputed");
+        checkThrows(IllegalArgumentException.class, () -> new ReportCache(0), "empty cache");
+    }
+    
+    private static void serviceReportsFollowWrites() throws Exception {
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        courses.addCourse("CS101", "Intro", 3, "Dr A", Semester.FALL, "CS");
+        for (int i = 1; i <= 3; i++) {
+            students.addStudent("S" + i, "R" + i, "Student " + i, "s" + i + "@x");
+            students.enrollStudentInCourse("S" + i, "CS101", courses);
+        }
+        students.recordGrade("S1", "CS101", Grade.A);
+        students.recordGrade("S2", "CS101", Grade.C);
+        
+        GPAReport first = students.gpaReport(5);
+        check(first == students.gpaReport(5), "unchanged data is served from the cache");
+        checkEquals(2L, first.getCount(), "graded students");
+        
+        students.recordGrade("S3", "CS101", Grade.B);
+        GPAReport second = students.gpaReport(5);
+        check(second != first, "a write recomputes");
+        checkEquals(3L, second.getCount(), "graded students after the write");
+        
+        students.findById("S1").recordGrade("CS101", Grade.F);
+        GPAReport third = students.gpaReport(5);
+        check(third != second, "a grade set on the entity recomputes");
+        checkEquals("S1", third.getBottom().get(0).getStudent().getId(), "lowest GPA after the direct change");
+    }
+}
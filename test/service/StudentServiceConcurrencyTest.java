@@ -0,0 +1,230 @@
+package edu.ccrm.service;
+
+import edu.ccrm.config.AppConfig;
+import edu.ccrm.domain.*;
+import edu.ccrm.exception.DuplicateEnrollmentException;
+import edu.ccrm.exception.MaxCreditLimitExceededException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.ccrm.util.Checks.*;
+
+// Stress test for concurrent enrollment. Many threads enroll a small, heavily contended set of
+// students into overlapping courses; afterwards every successful enrollment must be present on
+// both the student and the course, and no student may hold more credits than the limit. A
+// third case deletes and re-adds students under grade traffic and checks the GPA aggregates.
+// Run: java -cp <classes> edu.ccrm.service.StudentServiceConcurrencyTest
+public class StudentServiceConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int STUDENTS = 64;
+    private static final int COURSES = 24;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+    
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < 5; round++) {
+            enrollmentsAreNeverLost(round);
+            mixedLoadKeepsBothSidesInStep(round);
+            deletesKeepAggregatesInStep(round);
+        }
+        System.out.println("StudentServiceConcurrencyTest passed");
+    }
+    
+    // Enrollments only: the number of enrollments held at the end must equal the number of
+    // calls that returned normally
+    private static void enrollmentsAreNeverLost(long seed) throws Exception {
+        StudentService students = new StudentService();
+        CourseService courses = createCatalog(students);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger overLimit = new AtomicInteger();
+        
+        runConcurrently(seed, random -> {
+            String studentId = "S" + random.nextInt(STUDENTS);
+            String courseCode = "CS" + (100 + random.nextInt(COURSES));
+            try {
+                students.enrollStudentInCourse(studentId, courseCode, courses);
+                succeeded.incrementAndGet();
+            } catch (DuplicateEnrollmentException e) {
+                duplicates.incrementAndGet();
+            } catch (MaxCreditLimitExceededException e) {
+                overLimit.incrementAndGet();
+            }
+        });
+        
+        int held = checkConsistent(students, courses);
+        checkEquals(succeeded.get(), held, "enrollments held vs. enrollments that succeeded");
+        checkEquals(THREADS * OPERATIONS_PER_THREAD, succeeded.get() + duplicates.get() + overLimit.get(),
+            "every call either succeeded or was refused");
+        check(overLimit.get() > 0, "the load should have pushed students against the credit limit");
+    }
+    
+    // Enrollments, unenrollments and grades interleaved on the same students and courses
+    private static void mixedLoadKeepsBothSidesInStep(long seed) throws Exception {
+        StudentService students = new StudentService();
+        CourseService courses = createCatalog(students);
+        Grade[] grades = Grade.values();
+        
+        runConcurrently(seed, random -> {
+            String studentId = "S" + random.nextInt(STUDENTS);
+            String courseCode = "CS" + (100 + random.nextInt(COURSES));
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    try {
+                        students.enrollStudentInCourse(studentId, courseCode, courses);
+                    } catch (DuplicateEnrollmentException | MaxCreditLimitExceededException e) {
+                        // refused; checked by the invariants below
+                    }
+                }
+                case 1 -> students.unenrollStudentFromCourse(studentId, courseCode, courses);
+                default -> students.recordGrade(studentId, courseCode, grades[random.nextInt(grades.length)]);
+            }
+        });
+        
+        checkConsistent(students, courses);
+        for (Student student : students.findAll()) {
+            check(student.getEnrolledCourses().containsAll(student.getCourseGrades().keySet()),
+                "grades recorded only for held enrollments of " + student.getId());
+        }
+    }
+    
+    // Students are deleted and re-added while grades are recorded on them; afterwards the
+    // cohort aggregates and the GPA index must describe exactly the students still registered
+    private static void deletesKeepAggregatesInStep(long seed) throws Exception {
+        StudentService students = new YieldingStudentService();
+        CourseService courses = createCatalog(students);
+        for (int i = 0; i < STUDENTS; i++) {
+            for (int c = 0; c < 3; c++) {
+                students.enrollStudentInCourse("S" + i, "CS" + (100 + (i + c) % COURSES), courses);
+            }
+        }
+        Grade[] grades = Grade.values();
+        
+        runConcurrently(seed, random -> {
+            int student = random.nextInt(STUDENTS);
+            String studentId = "S" + student;
+            if (random.nextInt(8) == 0) {
+                students.delete(studentId);
+                Student readded = new Student(studentId, "R" + student, "Student " + student, null);
+                for (int c = 0; c < 3; c++) {
+                    readded.enrollInCourse("CS" + (100 + (student + c) % COURSES));
+                }
+                students.addAll(List.of(readded)); // rejected if another thread re-added it first
+            } else {
+                String courseCode = "CS" + (100 + (student + random.nextInt(3)) % COURSES);
+                students.recordGrade(studentId, courseCode, grades[random.nextInt(grades.length)]);
+            }
+        });
+        
+        int active = 0;
+        double gpaTotal = 0.0;
+        for (Student student : students.findAll()) {
+            if (student.getStatus() == StudentStatus.ACTIVE) {
+                active++;
+                gpaTotal += student.calculateGPA();
+            }
+        }
+        Student.GPAStatistics stats = students.calculateGPAStatistics();
+        checkEquals(active, stats.getTotalStudents(), "active students in the aggregates");
+        check(Math.abs(gpaTotal / active - stats.getAverageGPA()) < 1e-9,
+            "average GPA " + stats.getAverageGPA() + " vs. recomputed " + gpaTotal / active);
+        
+        List<Student> indexed = students.query(Query.atLeast(StudentService.Fields.GPA, 0.0));
+        checkEquals(students.count(), (long) indexed.size(), "students in the GPA index");
+        for (Student student : indexed) {
+            check(students.findById(student.getId()) == student, "GPA index holds deleted " + student.getId());
+        }
+    }
+    
+    // Yields after every student lookup, so a grade can be recorded on a student that is being
+    // deleted at the same time
+    private static class YieldingStudentService extends StudentService {
+        @Override
+        public Student findById(String id) {
+            Student student = super.findById(id);
+            Thread.yield();
+            return student;
+        }
+    }
+    
+    // Yields on every lookup. Enrollment looks up each held course while adding up credits,
+    // between its checks and its writes, so the scheduler gets to interleave other threads
+    // there even on a single core.
+    private static class YieldingCourseService extends CourseService {
+        @Override
+        public Course findById(String code) {
+            Thread.yield();
+            return super.findById(code);
+        }
+    }
+    
+    // Credits of 3 and 4, so the 18-credit limit falls between five and six courses
+    private static CourseService createCatalog(StudentService students) {
+        CourseService courses = new YieldingCourseService();
+        for (int i = 0; i < COURSES; i++) {
+            courses.addCourse("CS" + (100 + i), "Course " + i, 3 + i % 2, "Dr " + i, Semester.FALL, "CS");
+        }
+        for (int i = 0; i < STUDENTS; i++) {
+            students.addStudent("S" + i, "R" + i, "Student " + i, "s" + i + "@x");
+        }
+        return courses;
+    }
+    
+    private interface Operation {
+        void run(Random random) throws Exception;
+    }
+    
+    // Starts every thread at once so they contend from the first operation
+    private static void runConcurrently(long seed, Operation operation) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(seed * THREADS + t);
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    operation.run(random);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    // Checks that students and courses agree on every enrollment and that no student is over
+    // the credit limit; returns the number of enrollments held
+    private static int checkConsistent(StudentService students, CourseService courses) {
+        int limit = AppConfig.getInstance().getMaxCreditsPerSemester();
+        int held = 0;
+        for (Student student : students.findAll()) {
+            int credits = 0;
+            for (String code : student.getEnrolledCourses()) {
+                Course course = courses.findById(code);
+                check(course.getEnrolledStudents().contains(student.getId()),
+                    code + " does not list " + student.getId());
+                credits += course.getCredits();
+                held++;
+            }
+            check(credits <= limit, student.getId() + " holds " + credits + " credits, limit " + limit);
+        }
+        int listed = 0;
+        for (Course course : courses.findAll()) {
+            for (String studentId : course.getEnrolledStudents()) {
+                check(students.findById(studentId).getEnrolledCourses().contains(course.getCode()),
+                    studentId + " is listed by " + course.getCode() + " but not enrolled");
+                listed++;
+            }
+        }
+        checkEquals(held, listed, "enrollments seen from students vs. from courses");
+        return held;
+    }
+}
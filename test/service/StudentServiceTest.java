@@ -0,0 +1,145 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.*;
+
+import java.util.*;
+
+import static edu.ccrm.util.Checks.*;
+
+// StudentService registry rules that the stress and recovery tests do not cover.
+// Run: java -cp <classes> edu.ccrm.service.StudentServiceTest
+public class StudentServiceTest {
+    public static void main(String[] args) throws Exception {
+        blankEmailsAreNotUnique();
+        cachedReportsAreReadOnly();
+        missingKeysAreRejected();
+        failingLogDoesNotStarveOthers();
+        courseStatusReachesLogs();
+        System.out.println("StudentServiceTest passed");
+    }
+    
+    // A missing email is not a value two students can clash on
+    private static void blankEmailsAreNotUnique() throws Exception {
+        StudentService students = new StudentService();
+        students.addStudent("S1", "R1", "First", null);
+        students.addStudent("S2", "R2", "Second", null);
+        students.addStudent("S3", "R3", "Third", "");
+        students.addStudent("S4", "R4", "Fourth", "  ");
+        students.save(new Student("S5", "R5", "Fifth", null));
+        ImportResult batch = students.addAll(List.of(
+            new Student("S6", "R6", "Sixth", null), new Student("S7", "R7", "Seventh", "")));
+        checkEquals(2, batch.getAcceptedCount(), "batch with blank emails accepted");
+        checkEquals(7L, students.count(), "students with blank emails");
+        check(students.findByEmail(null) == null && students.findByEmail("") == null,
+            "blank emails are not looked up");
+        
+        // Giving one an email indexes it; blanking it again frees the address
+        check(students.updateStudent("S1", "First", "First@X"), "email set");
+        checkEquals("S1", students.findByEmail("first@x").getId(), "lookup by new email");
+        checkThrows(IllegalArgumentException.class, () -> students.addStudent("S8", "R8", "Eighth", "first@x"),
+            "real emails stay unique");
+        check(students.updateStudent("S1", "First", null), "email cleared");
+        check(students.findByEmail("first@x") == null, "cleared email no longer indexed");
+        students.addStudent("S8", "R8", "Eighth", "first@x");
+        
+        students.delete("S2");
+        students.addStudent("S9", "R9", "Ninth", null);
+        checkEquals(8L, students.count(), "after delete and re-add");
+    }
+    
+    // Cached reports are shared between callers, so none of them may change one
+    private static void cachedReportsAreReadOnly() throws Exception {
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        courses.addCourse("CS101", "Intro", 3, "Dr A", Semester.FALL, "CS");
+        students.addStudent("S1", "R1", "First", "s1@x");
+        students.enrollStudentInCourse("S1", "CS101", courses);
+        students.recordGrade("S1", "CS101", Grade.A);
+        
+        GPAReport report = students.gpaReport(5);
+        check(report == students.gpaReport(5), "report is served from the cache");
+        check(report.isReadOnly(), "cached report is read-only");
+        checkThrows(IllegalStateException.class, () -> report.add(students.findById("S1")), "add to cached report");
+        checkThrows(IllegalStateException.class, () -> report.merge(new GPAReport(5)), "merge into cached report");
+        checkEquals(1L, students.gpaReport(5).getCount(), "cached report unchanged");
+        
+        GPAReport byCourse = students.gpaReportByCourse(5).get("CS101");
+        checkThrows(IllegalStateException.class, () -> byCourse.add(students.findById("S1")), "add to grouped report");
+        
+        // A caller can still fold a shared report into one of its own
+        checkEquals(1L, new GPAReport(5).merge(report).getCount(), "merge from cached report");
+    }
+    
+    // ID and registration number are unique keys; without one a student cannot be indexed
+    private static void missingKeysAreRejected() throws Exception {
+        StudentService students = new StudentService();
+        IllegalArgumentException missing = checkThrows(IllegalArgumentException.class,
+            () -> students.addStudent("S1", null, "First", "s1@x"), "null registration number");
+        checkEquals("Missing registration number", missing.getMessage(), "message for a missing registration number");
+        checkThrows(IllegalArgumentException.class, () -> students.addStudent("S1", "", "First", "s1@x"),
+            "empty registration number");
+        checkThrows(IllegalArgumentException.class, () -> students.addStudent(null, "R1", "First", "s1@x"),
+            "null student ID");
+        checkThrows(IllegalArgumentException.class, () -> students.save(new Student("S2", null, "Second", null)),
+            "save without a registration number");
+        checkEquals(0L, students.count(), "nothing stored");
+        
+        ImportResult batch = students.addAll(List.of(new Student("S3", null, "Third", null)));
+        checkEquals("Missing registration number", batch.getRejections().get(0).getReason(), "batch uses the same message");
+    }
+    
+    // A change that has been applied reaches every log, even when one before it throws
+    private static void failingLogDoesNotStarveOthers() throws Exception {
+        StudentService students = new StudentService();
+        CourseService courses = new CourseService();
+        courses.addCourse("CS101", "Intro", 3, "Dr A", Semester.FALL, "CS");
+        students.addStudent("S1", "R1", "First", "s1@x");
+        List<String> seen = new ArrayList<>();
+        students.addMutationLog(new MutationLog() {
+            @Override
+            public void enrolled(String studentId, String courseCode) {
+                throw new IllegalStateException("log is broken");
+            }
+        });
+        students.addMutationLog(new MutationLog() {
+            @Override
+            public void enrolled(String studentId, String courseCode) {
+                seen.add(studentId + " " + courseCode);
+            }
+        });
+        
+        students.enrollStudentInCourse("S1", "CS101", courses);
+        check(students.findById("S1").isEnrolledIn("CS101"), "enrollment applied");
+        checkEquals(List.of("S1 CS101"), seen, "later log still told about the enrollment");
+        
+        // A log that refuses up front stops the change before anything is applied
+        students.addMutationLog(new MutationLog() {
+            @Override
+            public void checkWritable() {
+                throw new IllegalStateException("read-only");
+            }
+        });
+        checkThrows(IllegalStateException.class, () -> students.unenrollStudentFromCourse("S1", "CS101", courses),
+            "refused unenrollment");
+        check(students.findById("S1").isEnrolledIn("CS101"), "refused unenrollment not applied");
+    }
+    
+    // Status changes are published by the course's listener, so a direct setter is logged
+    // exactly like deactivateCourse
+    private static void courseStatusReachesLogs() throws Exception {
+        CourseService courses = new CourseService();
+        courses.addCourse("CS101", "Intro", 3, "Dr A", Semester.FALL, "CS");
+        courses.addCourse("MA201", "Calculus", 4, "Dr B", Semester.SPRING, "MA");
+        List<String> seen = new ArrayList<>();
+        courses.addMutationLog(new MutationLog() {
+            @Override
+            public void courseStatusChanged(String courseCode, CourseStatus status) {
+                seen.add(courseCode + " " + status);
+            }
+        });
+        
+        courses.deactivateCourse("CS101");
+        courses.findById("MA201").setStatus(CourseStatus.INACTIVE);
+        checkEquals(List.of("CS101 INACTIVE", "MA201 INACTIVE"), seen, "status changes logged once each");
+    }
+}
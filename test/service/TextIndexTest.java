@@ -0,0 +1,104 @@
+package edu.ccrm.service;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static edu.ccrm.util.Checks.*;
+
+// TextIndex ranking: word hits, then texts starting with the query, then shorter texts.
+// Single-word queries with few matches must agree with ranking every text by brute force;
+// with more matches than the scan budget, the exact word still beats longer words sharing
+// its prefix, and every result matches.
+// Run: java -cp <classes> edu.ccrm.service.TextIndexTest
+public class TextIndexTest {
+    public static void main(String[] args) throws Exception {
+        ranking();
+        updatesAreSearchable();
+        smallResultsMatchBruteForce();
+        budgetKeepsExactWordsFirst();
+        System.out.println("TextIndexTest passed");
+    }
+    
+    private static void ranking() {
+        TextIndex<String> index = index("Big Data Systems", "Data Structures", "Database Design", "Data", "Metadata");
+        checkEquals(List.of("Data", "Data Structures", "Database Design", "Big Data Systems"),
+            index.search("data", 10), "single-word ranking");
+        checkEquals(List.of("Data", "Data Structures"), index.search("DATA", 2), "limit and case");
+        checkEquals(List.of("Data Structures"), index.search("data str", 10), "last word is a prefix");
+        checkEquals(List.of("Data Structures"), index.search("structures da", 10), "words in any order");
+        checkEquals(List.of(), index.search("structures big", 10), "every word must match");
+        checkEquals(List.of(), index.search("  ", 10), "blank query");
+    }
+    
+    private static void updatesAreSearchable() {
+        Map<String, String> titles = new HashMap<>(Map.of("C1", "Data Structures", "C2", "Databases"));
+        TextIndex<String> index = new TextIndex<>(titles::get, Function.identity());
+        titles.keySet().forEach(index::add);
+        
+        titles.put("C1", "Graph Theory");
+        index.update("C1", "Data Structures");
+        checkEquals(List.of("C2"), index.search("data", 10), "renamed entity left its old words");
+        checkEquals(List.of("C1"), index.search("gra", 10), "renamed entity found by its new words");
+        
+        index.remove("C2", titles.get("C2"));
+        checkEquals(List.of(), index.search("data", 10), "removed entity");
+    }
+    
+    // 60 texts stay under the budget of 64, so the order must be exact
+    private static void smallResultsMatchBruteForce() {
+        String[] words = {"ann", "anna", "annabel", "annex", "anne", "annual", "bob"};
+        List<String> texts = new ArrayList<>();
+        Random random = new Random(17);
+        for (int i = 0; i < 60; i++) {
+            String text = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + i;
+            texts.add(text.substring(0, 1).toUpperCase(Locale.ROOT) + text.substring(1));
+        }
+        TextIndex<String> index = index(texts.toArray(new String[0]));
+        for (String query : List.of("ann", "anne", "annu", "b")) {
+            checkEquals(bruteForce(texts, query, 7), index.search(query, 7), "ranking of " + query);
+        }
+    }
+    
+    // 1000 texts share the prefix but only three have the word itself; they sort first in the
+    // token map, so the budget still reaches them
+    private static void budgetKeepsExactWordsFirst() {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            texts.add("Annabel " + i);
+        }
+        texts.addAll(List.of("Zed Ann", "Ann Smith", "Ann Lee"));
+        TextIndex<String> index = index(texts.toArray(new String[0]));
+        
+        checkEquals(List.of("Ann Lee", "Ann Smith", "Zed Ann"), index.search("ann", 3), "exact words win");
+        List<String> found = index.search("anna", 20);
+        checkEquals(20, found.size(), "results past the budget");
+        for (String text : found) {
+            check(text.startsWith("Annabel "), "result matches the prefix: " + text);
+        }
+    }
+    
+    private static TextIndex<String> index(String... texts) {
+        TextIndex<String> index = new TextIndex<>(Function.identity(), Function.identity());
+        for (String text : texts) {
+            index.add(text);
+        }
+        return index;
+    }
+    
+    // The ranking rules applied to every text, single-word queries only
+    private static List<String> bruteForce(List<String> texts, String prefix, int limit) {
+        Map<String, Integer> scores = new HashMap<>();
+        for (String text : texts) {
+            List<String> tokens = TextIndex.tokenize(text);
+            int score = tokens.contains(prefix) ? 2 : tokens.stream().anyMatch(t -> t.startsWith(prefix)) ? 1 : 0;
+            if (score > 0) {
+                scores.put(text, score + (String.join(" ", tokens).startsWith(prefix) ? 1 : 0));
+            }
+        }
+        List<String> ranked = new ArrayList<>(scores.keySet());
+        ranked.sort(Comparator.<String>comparingInt(scores::get).reversed()
+            .thenComparingInt(String::length)
+            .thenComparing(Comparator.naturalOrder()));
+        return ranked.subList(0, Math.min(limit, ranked.size()));
+    }
+}
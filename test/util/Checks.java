@@ -0,0 +1,37 @@
+package edu.ccrm.util;
+
+import java.util.Objects;
+
+// Minimal assertions for the self-checking test programs under test/. Each test is a main
+// class that throws on the first failed check, so a non-zero exit status means a failure.
+public final class Checks {
+    private Checks() {}
+    
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+    
+    public static void checkEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+    
+    public static <T extends Throwable> T checkThrows(Class<T> type, ThrowingRunnable action, String message) {
+        try {
+            action.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return type.cast(e);
+            }
+            throw new AssertionError(message + ": expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError(message + ": expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+    
+    public interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,94 @@
+package edu.ccrm.util;
+
+import java.util.*;
+
+import static edu.ccrm.util.Checks.*;
+
+// QuantileSketch against exact answers: quantiles within half a cell of the exact
+// nearest-rank value (and equal to it for values on the cell grid), histogram bins that
+// match integer binning at every edge, and merges that equal one sketch over all values.
+// Run: java -cp <classes> edu.ccrm.util.QuantileSketchTest
+public class QuantileSketchTest {
+    private static final double RESOLUTION = 0.01;
+    private static final int CELLS = 400;
+    
+    public static void main(String[] args) throws Exception {
+        quantilesMatchNearestRank();
+        histogramBinEdges();
+        mergeAddsCounts();
+        edgeCases();
+        System.out.println("QuantileSketchTest passed");
+    }
+    
+    private static void quantilesMatchNearestRank() {
+        Random random = new Random(3);
+        for (int n : new int[] {1, 2, 7, 100, 10_001}) {
+            double[] values = new double[n];
+            int[] cells = new int[n];
+            QuantileSketch sketch = new QuantileSketch(0.0, 4.0, RESOLUTION);
+            QuantileSketch gridSketch = new QuantileSketch(0.0, 4.0, RESOLUTION);
+            for (int i = 0; i < n; i++) {
+                values[i] = random.nextDouble() * 4.0;
+                cells[i] = random.nextInt(CELLS + 1);
+                sketch.add(values[i]);
+                gridSketch.add(cells[i] * RESOLUTION);
+            }
+            Arrays.sort(values);
+            Arrays.sort(cells);
+            for (double q : new double[] {0.0, 0.01, 0.25, 0.5, 0.9, 0.99, 1.0}) {
+                int rank = Math.max(1, (int) Math.ceil(q * n));
+                double exact = values[rank - 1];
+                check(Math.abs(sketch.quantile(q) - exact) <= RESOLUTION / 2 + 1e-9,
+                    "q" + q + " of " + n + ": " + sketch.quantile(q) + " vs exact " + exact);
+                checkEquals(cells[rank - 1] * RESOLUTION, gridSketch.quantile(q), "q" + q + " of " + n + " on the grid");
+            }
+        }
+    }
+    
+    // Every cell value, once each: bin b must hold the cells k with k * bins / CELLS == b,
+    // except the maximum, which belongs to the top bin
+    private static void histogramBinEdges() {
+        QuantileSketch sketch = new QuantileSketch(0.0, 4.0, RESOLUTION);
+        for (int k = 0; k <= CELLS; k++) {
+            sketch.add(k * RESOLUTION);
+        }
+        for (int bins : new int[] {1, 3, 4, 7, 8, 40, 400}) {
+            long[] expected = new long[bins];
+            for (int k = 0; k <= CELLS; k++) {
+                expected[Math.min(k * bins / CELLS, bins - 1)]++;
+            }
+            checkEquals(Arrays.toString(expected), Arrays.toString(sketch.histogram(bins)), bins + " bins");
+        }
+    }
+    
+    private static void mergeAddsCounts() {
+        Random random = new Random(5);
+        QuantileSketch all = new QuantileSketch(0.0, 4.0, RESOLUTION);
+        QuantileSketch left = new QuantileSketch(0.0, 4.0, RESOLUTION);
+        QuantileSketch right = new QuantileSketch(0.0, 4.0, RESOLUTION);
+        for (int i = 0; i < 1000; i++) {
+            double value = random.nextDouble() * 4.0;
+            all.add(value);
+            (i % 3 == 0 ? left : right).add(value);
+        }
+        left.merge(right);
+        checkEquals(all.count(), left.count(), "merged count");
+        checkEquals(Arrays.toString(all.histogram(400)), Arrays.toString(left.histogram(400)), "merged cells");
+        checkThrows(IllegalArgumentException.class,
+            () -> left.merge(new QuantileSketch(0.0, 5.0, RESOLUTION)), "merge with another range");
+    }
+    
+    private static void edgeCases() {
+        QuantileSketch sketch = new QuantileSketch(0.0, 4.0, RESOLUTION);
+        check(Double.isNaN(sketch.quantile(0.5)), "empty sketch has no median");
+        checkThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5), "quantile above 1");
+        checkThrows(IllegalArgumentException.class, () -> sketch.histogram(0), "no bins");
+        checkThrows(IllegalArgumentException.class, () -> new QuantileSketch(1.0, 1.0, RESOLUTION), "empty range");
+        
+        // Out-of-range values are clamped to the ends
+        sketch.add(-1.0);
+        sketch.add(9.0);
+        checkEquals(0.0, sketch.quantile(0.5), "clamped low value");
+        checkEquals(4.0, sketch.quantile(1.0), "clamped high value");
+    }
+}
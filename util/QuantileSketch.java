@@ -0,0 +1,90 @@
+package edu.ccrm.util;
+
+// Fixed-resolution quantile sketch for values on a bounded range, such as GPAs.
+//
+// Values are counted in equal-width cells, so memory is fixed by the range and resolution
+// rather than by the number of values, any quantile is within half a cell of the exact one,
+// and two sketches of the same shape merge by adding their counts.
+public class QuantileSketch {
+    private final double min;
+    private final double resolution;
+    private final long[] counts;
+    private long count;
+    
+    public QuantileSketch(double min, double max, double resolution) {
+        if (!(max > min) || !(resolution > 0)) {
+            throw new IllegalArgumentException("Sketch needs max > min and a positive resolution");
+        }
+        this.min = min;
+        this.resolution = resolution;
+        this.counts = new long[(int) Math.round((max - min) / resolution) + 1];
+    }
+    
+    // Values outside the range are clamped to its ends
+    public void add(double value) {
+        counts[cellOf(value)]++;
+        count++;
+    }
+    
+    public void merge(QuantileSketch other) {
+        if (other.min != min || other.resolution != resolution || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge sketches with different ranges");
+        }
+        for (int cell = 0; cell < counts.length; cell++) {
+            counts[cell] += other.counts[cell];
+        }
+        count += other.count;
+    }
+    
+    public long count() {
+        return count;
+    }
+    
+    // Nearest-rank quantile for q in [0, 1]; NaN when nothing has been added
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int cell = 0; cell < counts.length; cell++) {
+            seen += counts[cell];
+            if (seen >= rank) {
+                return valueOf(cell);
+            }
+        }
+        return valueOf(counts.length - 1);
+    }
+    
+    // Counts in equal-width bins across the range; the top bin includes the maximum
+    public long[] histogram(int bins) {
+        if (bins <= 0) {
+            throw new IllegalArgumentException("Bin count must be positive");
+        }
+        long[] histogram = new long[bins];
+        double binWidth = (valueOf(counts.length - 1) - min) / bins;
+        for (int cell = 0; cell < counts.length; cell++) {
+            if (counts[cell] != 0) {
+                // The small nudge keeps cells that sit exactly on a bin edge in the upper bin
+                int bin = (int) ((valueOf(cell) - min) / binWidth + 1e-9);
+                histogram[Math.min(bin, bins - 1)] += counts[cell];
+            }
+        }
+        return histogram;
+    }
+    
+    public double getMin() { return min; }
+    public double getMax() { return valueOf(counts.length - 1); }
+    
+    private int cellOf(double value) {
+        int cell = (int) Math.round((value - min) / resolution);
+        return Math.max(0, Math.min(cell, counts.length - 1));
+    }
+    
+    private double valueOf(int cell) {
+        return min + cell * resolution;
+    }
+}
@@ -0,0 +1,50 @@
+package edu.ccrm.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StripedLock {
+    private final ReentrantLock[] stripes;
+    
+    public StripedLock(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+    
+    public void lock(Object key) {
+        stripes[stripeFor(key)].lock();
+    }
+    
+    public void unlock(Object key) {
+        stripes[stripeFor(key)].unlock();
+    }
+    
+    // Always acquires the lower stripe first, so two-key callers can never deadlock
+    public void lock(Object first, Object second) {
+        int a = stripeFor(first);
+        int b = stripeFor(second);
+        stripes[Math.min(a, b)].lock();
+        if (a != b) {
+            stripes[Math.max(a, b)].lock();
+        }
+    }
+    
+    public void unlock(Object first, Object second) {
+        int a = stripeFor(first);
+        int b = stripeFor(second);
+        if (a != b) {
+            stripes[Math.max(a, b)].unlock();
+        }
+        stripes[Math.min(a, b)].unlock();
+    }
+    
+    private int stripeFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16); // spread high bits like HashMap does
+        return Math.floorMod(h, stripes.length);
+    }
+}